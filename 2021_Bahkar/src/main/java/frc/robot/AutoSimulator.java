@@ -0,0 +1,133 @@
+package frc.robot;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.commands.auto.AutoRoutine;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the autonomous routines on the chooser in desktop simulation, faster than real time, and
+ * reports how long each one and each of its steps takes. It is started instead of the robot when
+ * {@link #ENVIRONMENT_VARIABLE} is set, which "./gradlew simulateJava -PsimulateAutos" does; add
+ * class or chooser names, "-PsimulateAutos=Trench8M,Steal10", to run only those routines.
+ *
+ * <p>The HAL's clock is paused and stepped one control period at a time, with the scheduler run
+ * once per step, so the routines see the same 20 ms loop they do on the field while the simulation
+ * runs as fast as the CPU allows. The drivetrain is simulated by {@link
+ * frc.robot.subsystems.drive.SwerveSim}, and the turret and shooter by simple stand-ins for how
+ * long they take to turn and spin up. Nothing in autonomous waits on the intake or hopper, so they
+ * need no model.
+ *
+ * <p>Each step's time comes from the {@link AutoRoutine.Step} it was added as, so routines that are
+ * not {@link AutoRoutine AutoRoutines} only report their total.
+ */
+public final class AutoSimulator {
+
+  /** Environment variable that selects the simulator, and optionally the routines to run. */
+  public static final String ENVIRONMENT_VARIABLE = "SIMULATE_AUTOS";
+
+  /** Length of the autonomous period (Seconds). */
+  private static final double AUTONOMOUS_LENGTH = 15.0;
+  /** Time after which a routine that has not finished is stopped (Seconds). */
+  private static final double TIME_LIMIT = 2.0 * AUTONOMOUS_LENGTH;
+  /** Time to let the robot come to rest between routines (Seconds). */
+  private static final double SETTLE_TIME = 1.0;
+
+  private AutoSimulator() {}
+
+  public static void main(String... args) {
+    if (!HAL.initialize(500, 0)) throw new IllegalStateException("Failed to initialize the HAL");
+    SimHooks.pauseTiming();
+
+    RobotContainer container = new RobotContainer();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+
+    List<String> selected = Arrays.asList(args);
+    boolean onTime = true;
+    for (Map.Entry<String, SequentialCommandGroup> entry :
+        container.getAutonomousRoutines().entrySet()) {
+      SequentialCommandGroup routine = entry.getValue();
+      boolean chosen =
+          selected.isEmpty()
+              || selected.contains(routine.getClass().getSimpleName())
+              || selected.contains(entry.getKey());
+      if (!chosen) continue;
+
+      onTime &= run(entry.getKey(), routine);
+      settle();
+    }
+
+    // The subsystems' notifiers would keep the program running.
+    System.exit(onTime ? 0 : 1);
+  }
+
+  /**
+   * Run one routine to completion and print its timing.
+   *
+   * @return Whether the routine finished within the autonomous period.
+   */
+  private static boolean run(String name, SequentialCommandGroup routine) {
+    // Paths are built outside simulated time anyway, but this keeps their build out of the loop.
+    if (routine instanceof AutoRoutine) ((AutoRoutine) routine).warmup();
+
+    List<AutoRoutine.Step> steps =
+        routine instanceof AutoRoutine
+            ? ((AutoRoutine) routine).getSteps()
+            : Collections.<AutoRoutine.Step>emptyList();
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+
+    double start = Timer.getFPGATimestamp();
+    routine.schedule();
+
+    double elapsed;
+    while (true) {
+      scheduler.run();
+      elapsed = Timer.getFPGATimestamp() - start;
+      if (!routine.isScheduled() || elapsed >= TIME_LIMIT) break;
+      SimHooks.stepTiming(Constants.drive.CONTROL_PERIOD);
+    }
+    boolean finished = !routine.isScheduled();
+    routine.cancel();
+
+    String result;
+    if (!finished) {
+      result = String.format("did not finish in %.0f s", TIME_LIMIT);
+    } else if (elapsed > AUTONOMOUS_LENGTH) {
+      result = String.format("%.2f s, %.2f s over", elapsed, elapsed - AUTONOMOUS_LENGTH);
+    } else {
+      result = String.format("%.2f s, %.2f s to spare", elapsed, AUTONOMOUS_LENGTH - elapsed);
+    }
+    System.out.printf("%s (%s): %s%n", name, routine.getClass().getSimpleName(), result);
+
+    double time = 0.0;
+    for (AutoRoutine.Step step : steps) {
+      double duration = step.getDuration();
+      boolean timeUp = time < AUTONOMOUS_LENGTH && time + duration > AUTONOMOUS_LENGTH;
+      System.out.printf(
+          "  %6.2f s %6.2f s  %s%s%n",
+          time, duration, step.getName(), timeUp ? "  <- time up" : "");
+      time += duration;
+    }
+    return finished && elapsed <= AUTONOMOUS_LENGTH;
+  }
+
+  /** Run the scheduler with nothing scheduled, so the default commands bring the robot to rest. */
+  private static void settle() {
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.cancelAll();
+    for (double t = 0.0; t < SETTLE_TIME; t += Constants.drive.CONTROL_PERIOD) {
+      scheduler.run();
+      SimHooks.stepTiming(Constants.drive.CONTROL_PERIOD);
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.controller.PIDController;
 import edu.wpi.first.wpilibj.controller.ProfiledPIDController;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.geometry.Translation2d;
 import edu.wpi.first.wpilibj.kinematics.SwerveDriveKinematics;
@@ -11,7 +13,9 @@ import edu.wpi.first.wpilibj.trajectory.constraint.CentripetalAccelerationConstr
 import edu.wpi.first.wpilibj.trajectory.constraint.EllipticalRegionConstraint;
 import edu.wpi.first.wpilibj.trajectory.constraint.MaxVelocityConstraint;
 import edu.wpi.first.wpilibj.trajectory.constraint.SwerveDriveKinematicsConstraint;
+import edu.wpi.first.wpilibj.trajectory.constraint.TrajectoryConstraint;
 import edu.wpi.first.wpilibj.util.Units;
+import frc.robot.utils.TrajectoryCache;
 
 /**
  * A class storing static variables holding constants.
@@ -40,12 +44,20 @@ public final class Constants {
     public static final double FIVEFIFTY_MAX_TEMP = 50.0;
     /** Maximum preferred temperature of a neo motor (Celsius). */
     public static final double NEO_MAX_TEMP = 50.0;
+    /** Counts per revolution of a CANCoder read as a remote sensor. */
+    public static final double CANCODER_TICKS = 4096.0;
     /** Counts per revolution of the Falcon 500 motor. */
     public static final double FALCON_ENCODER_TICKS = 2048.0;
     /** Maximum preferred temperature of Falcon-500 motor (Celsius). */
     public static final double FALCON_MAX_TEMP = 50.0;
     /** Maximum velocity of a Falcon-500 motor with no load (RPM). */
     public static final double FALCON_MAX_VEL = 6380.0;
+    /** Stall torque of a Falcon-500 motor (Newton Meters). */
+    public static final double FALCON_STALL_TORQUE = 4.69;
+    /** Stall current of a Falcon-500 motor (Amps). */
+    public static final double FALCON_STALL_CURRENT = 257.0;
+    /** Current drawn by a Falcon-500 motor with no load (Amps). */
+    public static final double FALCON_FREE_CURRENT = 1.5;
   }
 
   /** Drivetrain specific constants. */
@@ -75,12 +87,38 @@ public final class Constants {
     public static final double MAX_VOLTS = 12.0;
     /** Maximum velocity allowed in the drivetrain (Meters per Second). */
     public static final double MAX_VELOCITY = 5.0;
-    /** Maximum acceleration of the drivetrain in (Meters per Second Squared). */
-    public static final double MAX_ACCEL = 20.0;
+    /** Coefficient of friction between the wheels and the carpet. */
+    public static final double WHEEL_COF = 1.1;
+    /** Fraction of the grip of the wheels that driving by hand may use. */
+    public static final double TRACTION_MARGIN = 0.8;
+    /**
+     * Maximum acceleration of the drivetrain, kept under what the wheels can push before they break
+     * traction (Meters per Second Squared).
+     */
+    public static final double MAX_ACCEL = TRACTION_MARGIN * WHEEL_COF * 9.81;
     /** Maximum centripital acceleration of the robot (Meters per Second Squared). */
     public static final double MAX_CACCEL = 8.0;
     /** Maximum rotational velocity (Radians per Second). */
     public static final double MAX_RADIANS = 3.0 * Math.PI;
+    /** Maximum rotational acceleration when driven by hand (Radians per Second Squared). */
+    public static final double MAX_ANGULAR_ACCEL = 8.0 * Math.PI;
+    /** Maximum change in acceleration when speeding up by hand (Meters per Second Cubed). */
+    public static final double MAX_JERK = 200.0;
+    /**
+     * Whether the gyro measures heading opposite to the omega of the chassis speeds. True matches
+     * the way the heading hold has always been wired.
+     */
+    public static final boolean GYRO_INVERTED = true;
+
+    /** Period of the main robot loop that commands the modules (Seconds). */
+    public static final double CONTROL_PERIOD = 0.02;
+    /** Correct chassis speeds for the arc traced over one control period by default. */
+    public static final boolean DISCRETIZE = true;
+
+    /** Period of the odometry sampling thread (Seconds). */
+    public static final double ODOMETRY_PERIOD = 0.005;
+    /** Length of pose history kept for latency compensation (Seconds). */
+    public static final double POSE_HISTORY_LENGTH = 1.0;
 
     /** Position of the Front-Left module relative to the center of the robot (Meters). */
     public static final Translation2d FrontLeftLocation =
@@ -117,6 +155,26 @@ public final class Constants {
       public static final double kI = 0.0;
       /** Derivative term (kD). */
       public static final double kD = 0.0;
+
+      /**
+       * Run the angle loop on the Talon with Motion Magic, using the CANCoder as a remote sensor,
+       * instead of on the roboRIO with the gains above.
+       */
+      public static final boolean ON_CONTROLLER = true;
+      /** On-controller proportional term (Talon output per CANCoder count). */
+      public static final double TALON_kP = 1.0;
+      /** On-controller integral term. */
+      public static final double TALON_kI = 0.0;
+      /** On-controller derivative term. */
+      public static final double TALON_kD = 10.0;
+      /** On-controller velocity feedforward, full output over free speed in CANCoder units. */
+      public static final double TALON_kF =
+          1023.0
+              / (robot.FALCON_MAX_VEL / 60.0 / ANGLE_GEARING * robot.CANCODER_TICKS / 10.0);
+      /** Motion Magic cruise velocity (CANCoder counts per 100ms). */
+      public static final int CRUISE_VELOCITY = 3000;
+      /** Motion Magic acceleration (CANCoder counts per 100ms per Second). */
+      public static final int ACCELERATION = 30000;
     }
 
     /** PID Constants for the speed motors. */
@@ -127,6 +185,15 @@ public final class Constants {
       public static final double kI = 0.0;
       /** Derivative term (kD). */
       public static final double kD = 1e-1;
+
+      // Feedforward gains, estimated from the Falcon's free speed until the drivetrain is
+      // characterized with the Characterize command and FeedforwardFitter.
+      /** Static friction feedforward (Volts). */
+      public static final double kS = 0.6;
+      /** Velocity feedforward (Volts per Meter per Second). */
+      public static final double kV = 2.45;
+      /** Acceleration feedforward (Volts per Meter per Second Squared). */
+      public static final double kA = 0.3;
     }
 
     /** X Axis PID Constants (Autonomous). */
@@ -161,9 +228,89 @@ public final class Constants {
       public static final double kI = 0.0;
       /** Derivative term (kD). */
       public static final double kD = 15e-3;
+      /** Maximum velocity of the heading profile. */
+      public static final double MAX_VELOCITY = 270.0;
+      /** Maximum acceleration of the heading profile. */
+      public static final double MAX_ACCEL = 90.0;
       /** PID Controller object. */
       public static final ProfiledPIDController thetaPID =
-          new ProfiledPIDController(kP, kI, kD, new Constraints(270.0, 90.0));
+          new ProfiledPIDController(kP, kI, kD, new Constraints(MAX_VELOCITY, MAX_ACCEL));
+    }
+
+    /** Drivetrain characterization constants. */
+    public static final class characterization {
+      /** Time spent pointing the modules before any voltage is applied (Seconds). */
+      public static final double SETTLE_TIME = 1.0;
+      /** Voltage ramp of the quasistatic test (Volts per Second). */
+      public static final double RAMP_RATE = 0.25;
+      /** Length of the quasistatic test (Seconds). */
+      public static final double QUASISTATIC_TIME = 10.0;
+      /** Voltage step of the dynamic test (Volts). */
+      public static final double STEP_VOLTAGE = 6.0;
+      /** Length of the dynamic test (Seconds). */
+      public static final double DYNAMIC_TIME = 2.0;
+    }
+
+    /** Desktop simulation constants. */
+    public static final class sim {
+      /** Mass of the robot with battery and bumpers (Kilograms). */
+      public static final double ROBOT_MASS = 56.0;
+      /** Moment of inertia of the robot about its center (Kilogram Meters Squared). */
+      public static final double MOMENT_OF_INERTIA = 4.5;
+      /** Fraction of the robot's speed lost to rolling resistance each second. */
+      public static final double DAMPING = 0.2;
+      /** Moment of inertia of a module about its steering axis (Kilogram Meters Squared). */
+      public static final double AZIMUTH_INERTIA = 0.004;
+      /** Proportional gain of the simulated azimuth loop (Volts per Degree). */
+      public static final double AZIMUTH_kP = 0.1;
+      /** Derivative gain of the simulated azimuth loop (Volts per Degree per Second). */
+      public static final double AZIMUTH_kD = 0.0;
+    }
+
+    /** Heading hold constants. */
+    public static final class heading {
+      /** Proportional term on the heading error (Radians per Second per Radian). */
+      public static final double kP = 5.0;
+      /** Damping term on the yaw rate error (Radians per Second per Radian per Second). */
+      public static final double kD = 0.1;
+      /** Maximum turning speed of the profile (Radians per Second). */
+      public static final double MAX_VELOCITY = MAX_RADIANS;
+      /** Maximum turning acceleration of the profile (Radians per Second Squared). */
+      public static final double MAX_ACCEL = MAX_ANGULAR_ACCEL;
+      /** Heading error inside which a settled robot is left alone (Radians). */
+      public static final double TOLERANCE = Math.toRadians(1.0);
+    }
+
+    /** Pose estimator constants. */
+    public static final class estimator {
+      /** Uncertainty of the starting position (Meters). */
+      public static final double INITIAL_STD = 0.05;
+      /** Position error added by the wheels per meter driven (Meters per Meter). */
+      public static final double WHEEL_STD = 0.03;
+      /** Heading error of the gyro (Radians). */
+      public static final double GYRO_STD = Math.toRadians(1.0);
+      /** Error of a vision position with the target up close (Meters). */
+      public static final double VISION_STD = 0.1;
+      /** Growth of vision position error with the square of target distance (Per Meter). */
+      public static final double VISION_STD_PER_METER_SQ = 0.01;
+      /**
+       * Squared Mahalanobis distance past which a vision position is rejected; the 99.9% point of a
+       * chi-squared distribution with two degrees of freedom.
+       */
+      public static final double OUTLIER_GATE = 13.8;
+    }
+
+    /** Wheel slip detection constants. */
+    public static final class traction {
+      /** Whether to limit the command of a slipping wheel. */
+      public static final boolean ENABLED = true;
+      /**
+       * Fraction a wheel may turn faster or slower than the ground under it before it is counted as
+       * slipping.
+       */
+      public static final double SLIP_RATIO = 0.2;
+      /** Ground speed below which slip is measured against this instead (Meters per Second). */
+      public static final double MIN_SPEED = 0.25;
     }
 
     /** Autonomous configuration constants. */
@@ -174,25 +321,93 @@ public final class Constants {
       public static final double MAX_ACCEL = 1.5;
       /** Maximum velocity of the robot when driving over the steel bars. */
       public static final double BAR_VELOCITY = 0.5;
+      /** Center of the bar the paths cross (Meters). */
+      public static final Translation2d BAR_CENTER =
+          new Translation2d(3.518223 * 1.74759405074, 2.317102 * 1.79571303587);
+      /** Width of the zone around the bar that is driven slowly, along the field (Meters). */
+      public static final double BAR_X_WIDTH = 0.3;
+      /** Height of the zone around the bar that is driven slowly, across the field (Meters). */
+      public static final double BAR_Y_WIDTH = 0.7;
+      /** Angle the zone around the bar is turned by (Degrees). */
+      public static final double BAR_ANGLE = 22.341197;
+      /** Center of the same bar on the other side of the field, for mirrored paths (Meters). */
+      public static final Translation2d MIRRORED_BAR_CENTER =
+          new Translation2d(field.LENGTH - BAR_CENTER.getX(), field.WIDTH - BAR_CENTER.getY());
+      /** Farthest apart two chained paths can end and begin and still keep speed (Meters). */
+      public static final double CHAIN_POSITION_TOLERANCE = 0.01;
+      /** Sharpest turn between two chained paths that still keeps speed (Radians). */
+      public static final double CHAIN_ANGLE_TOLERANCE = Math.toRadians(5.0);
+      /** Whether to plan a new path when the robot is knocked off the one it is following. */
+      public static final boolean REPLAN_ENABLED = true;
+      /** Distance from the path at which a new one is planned (Meters). */
+      public static final double REPLAN_ERROR = 0.3;
+      /** Shortest time between new paths (Seconds). */
+      public static final double REPLAN_COOLDOWN = 0.5;
+      /** Time left on a path below which it is finished rather than replanned (Seconds). */
+      public static final double REPLAN_MIN_TIME = 0.5;
+      /** Waypoints closer than this to the robot are skipped when replanning (Meters). */
+      public static final double REPLAN_MIN_DISTANCE = 0.3;
+      /** Speed below which a new path starts towards the next waypoint (Meters per Second). */
+      public static final double REPLAN_MIN_SPEED = 0.2;
+      /** Time constant of the filter on the robot's measured velocity (Seconds). */
+      public static final double VELOCITY_FILTER = 0.1;
+      /** Constraint to drive slowly over the bar the paths cross. */
+      public static final TrajectoryConstraint BAR_ZONE = barZone(BAR_CENTER);
+      /**
+       * Constraint to drive slowly over the same bar on the other side of the field. Mirrored
+       * paths, and paths replanned from them, use it in place of {@link #BAR_ZONE}.
+       */
+      public static final TrajectoryConstraint MIRRORED_BAR_ZONE = barZone(MIRRORED_BAR_CENTER);
       /** {@link TrajectoryConfig} object to control trajectory generation. */
       public static final TrajectoryConfig CONFIG =
           new TrajectoryConfig(MAX_VELOCITY, MAX_ACCEL)
-              .addConstraint(new CentripetalAccelerationConstraint(MAX_ACCEL))
               .addConstraint(
-                  new EllipticalRegionConstraint(
-                      new Translation2d(3.518223 * 1.74759405074, 2.317102 * 1.79571303587),
-                      0.3,
-                      0.7,
-                      Rotation2d.fromDegrees(22.341197),
-                      new MaxVelocityConstraint(BAR_VELOCITY)))
-              .addConstraint(new SwerveDriveKinematicsConstraint(KINEMATICS, MAX_VELOCITY));
+                  TrajectoryCache.keyed(
+                      new CentripetalAccelerationConstraint(MAX_ACCEL), MAX_ACCEL))
+              .addConstraint(BAR_ZONE)
+              .addConstraint(
+                  TrajectoryCache.keyed(
+                      new SwerveDriveKinematicsConstraint(KINEMATICS, MAX_VELOCITY),
+                      MAX_VELOCITY,
+                      robot.A_WIDTH,
+                      robot.A_LENGTH));
+
+      /** Returns a constraint to drive slowly over a bar. */
+      private static TrajectoryConstraint barZone(Translation2d center) {
+        return TrajectoryCache.keyed(
+            new EllipticalRegionConstraint(
+                center,
+                BAR_X_WIDTH,
+                BAR_Y_WIDTH,
+                Rotation2d.fromDegrees(BAR_ANGLE),
+                new MaxVelocityConstraint(BAR_VELOCITY)),
+            center.getX(),
+            center.getY(),
+            BAR_X_WIDTH,
+            BAR_Y_WIDTH,
+            BAR_ANGLE,
+            BAR_VELOCITY);
+      }
     }
   }
 
   /** Field measurement constants. */
   public static final class field {
+    /** Length of the field, between the alliance walls (Meters). */
+    public static final double LENGTH = 15.98;
+    /** Width of the field, between the guardrails (Meters). */
+    public static final double WIDTH = 8.21;
+    /** Alliance the autonomous paths are drawn for; they are mirrored for the other. */
+    public static final Alliance PATH_ALLIANCE = Alliance.Blue;
+
     /** Height of the goal from the ground (Meters). */
     public static final double GOAL_HEIGHT = 2.4954282231;
+    /**
+     * Pose of the goal the Limelight targets, facing out into the field, on the side the paths are
+     * drawn for (Meters).
+     */
+    public static final Pose2d GOAL_POSE =
+        new Pose2d(0.0, WIDTH - Units.inchesToMeters(94.66), new Rotation2d());
     /** Height of the port from top to bottom (Feet). */
     public static final double PORT_HEIGHT = 2.5;
     /** Depth of the 3 point goal inside the 2 point goal (Meters). */
@@ -215,6 +430,13 @@ public final class Constants {
     public static final double LIMELIGHT_HEIGHT = 0.67;
     /** Angle from horizontal the Limelight is mounted at (Degrees). */
     public static final double MOUNTING_ANGLE = 19.7;
+    /**
+     * Position of the turret's axis from the center of the robot, forward and to the left
+     * (Meters).
+     */
+    public static final Translation2d LOCATION = new Translation2d(-0.18, 0.0);
+    /** Distance of the Limelight's lens out from the turret's axis, along its aim (Meters). */
+    public static final double LIMELIGHT_RADIUS = 0.15;
 
     /** Gear ratio of the turret motor */
     public static final double GEAR_RATIO = 300.0;
@@ -237,6 +459,12 @@ public final class Constants {
     public static final double MAX_ANG = 360.0;
     /** Farthest negative bound of the turret's roation (Degrees). */
     public static final double MIN_ANG = -45.0;
+
+    /** Desktop simulation constants. */
+    public static final class sim {
+      /** Speed of the turret at full power (Degrees per Second). */
+      public static final double MAX_VELOCITY = 200.0;
+    }
   }
 
   /** Shooter specific constants. */
@@ -264,6 +492,12 @@ public final class Constants {
     public static final double SHOOTER_HEIGHT = Units.feetToMeters(2.0);
     /** Diameter of the shooter wheel (Meters). */
     public static final double WHEEL_DIAMETER = Units.inchesToMeters(4.0);
+
+    /** Desktop simulation constants. */
+    public static final class sim {
+      /** Time for the wheel to cover 63% of a change in speed (Seconds). */
+      public static final double TIME_CONSTANT = 0.6;
+    }
   }
 
   /** Intake specific constants. */
@@ -20,6 +20,12 @@ public final class Main {
    * <p>If you change your main robot class, change the parameter type.
    */
   public static void main(String... args) {
+    String autos = System.getenv(AutoSimulator.ENVIRONMENT_VARIABLE);
+    if (autos != null) {
+      AutoSimulator.main(autos.isEmpty() ? new String[0] : autos.split(","));
+      return;
+    }
+
     RobotBase.startRobot(Robot::new);
   }
 }
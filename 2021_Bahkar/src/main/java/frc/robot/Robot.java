@@ -4,11 +4,14 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.utils.FieldTransform;
 import frc.robot.utils.TempManager;
+import frc.robot.utils.TrajectoryLoader;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -32,6 +35,9 @@ public class Robot extends TimedRobot {
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
     TempManager.openNotifier();
+
+    // Build the autonomous paths in the background rather than on the first autonomous cycle.
+    TrajectoryLoader.start();
   }
 
   /**
@@ -58,11 +64,16 @@ public class Robot extends TimedRobot {
   public void disabledInit() {}
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    // The alliance arrives from the FMS while disabled; warm up the paths for that side.
+    FieldTransform.setAlliance(DriverStation.getInstance().getAlliance());
+    m_robotContainer.warmupAutonomous();
+  }
 
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    FieldTransform.setAlliance(DriverStation.getInstance().getAlliance());
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
@@ -13,6 +13,8 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.RunCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.commands.auto.AutoRoutine;
+import frc.robot.commands.auto.FileAuto;
 import frc.robot.commands.auto.GeneratorRun;
 import frc.robot.commands.auto.Shoot3;
 import frc.robot.commands.auto.Steal10;
@@ -22,6 +24,8 @@ import frc.robot.commands.auto.Trench8L;
 import frc.robot.commands.auto.Trench8M;
 import frc.robot.commands.climber.Climb;
 import frc.robot.commands.drive.CenterBall;
+import frc.robot.commands.drive.Characterize;
+import frc.robot.commands.drive.Characterize.Test;
 import frc.robot.commands.groups.AutoIntake;
 import frc.robot.commands.groups.AutoShoot;
 import frc.robot.commands.hopper.SpinHopper;
@@ -40,9 +44,15 @@ import frc.robot.subsystems.hopper.Hopper;
 import frc.robot.subsystems.intake.Intake;
 import frc.robot.subsystems.shooter.Shooter;
 import frc.robot.subsystems.turret.Turret;
+import frc.robot.utils.AutoFile;
 import frc.robot.utils.CspController;
 import frc.robot.utils.CspController.Scaling;
+import frc.robot.utils.FieldTransform;
 import frc.robot.utils.TempManager;
+import frc.robot.utils.TrajectoryLoader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a
@@ -66,6 +76,15 @@ public class RobotContainer {
   SendableChooser<SequentialCommandGroup> autoChooser =
       new SendableChooser<SequentialCommandGroup>();
 
+  /** Autonomous routines on the chooser, by name, not counting songs. */
+  private final Map<String, SequentialCommandGroup> autos =
+      new LinkedHashMap<String, SequentialCommandGroup>();
+
+  /** Last autonomous routine that was warmed up. */
+  private SequentialCommandGroup warmedAuto = null;
+  /** Whether that routine was warmed up mirrored, for the other alliance. */
+  private boolean warmedMirrored = false;
+
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
     // Configure the button bindings
@@ -121,6 +140,7 @@ public class RobotContainer {
     pilot.getDpadRightButtonObj().whenPressed(new TurretAngle(90.0));
 
     pilot.getLbButtonObj().whenPressed(new ResetGyro());
+    pilot.getStartButtonObj().whenPressed(new InstantCommand(() -> drive.snapToNearest(90.0)));
 
     pilot
         .getRbButtonObj()
@@ -184,19 +204,29 @@ public class RobotContainer {
         new InstantCommand(
             () -> shooter.setVelocity(SmartDashboard.getNumber("Set Shooter Power", 0.0)),
             shooter));
+
+    // Drivetrain characterization, fit offline with FeedforwardFitter.
+    SmartDashboard.putData(
+        "Characterize Quasistatic Forward", new Characterize(Test.QUASISTATIC, true));
+    SmartDashboard.putData(
+        "Characterize Quasistatic Backward", new Characterize(Test.QUASISTATIC, false));
+    SmartDashboard.putData("Characterize Dynamic Forward", new Characterize(Test.DYNAMIC, true));
+    SmartDashboard.putData("Characterize Dynamic Backward", new Characterize(Test.DYNAMIC, false));
     /*SmartDashboard.putData("Send Hood Distance (mm)",
     new InstantCommand(() -> hood.setPosition(SmartDashboard.getNumber("Set Hood Position (mm)", 0.0) / 100.0)));*/
   }
 
   private void addChooser() {
     autoChooser.setDefaultOption("Nothing", null);
-    autoChooser.addOption("Six-Ball Left Trench", new Trench6L());
-    autoChooser.addOption("Six-Ball Middle Trench", new Trench6M());
-    autoChooser.addOption("Eight-Ball Middle Trench", new Trench8M());
-    autoChooser.addOption("Eight-Ball Left Trench", new Trench8L());
-    autoChooser.addOption("Ten-Ball Steal", new Steal10());
-    autoChooser.addOption("Simply shoot 3 balls", new Shoot3());
-    autoChooser.addOption("Generator", new GeneratorRun());
+    addAuto("Six-Ball Left Trench", new Trench6L());
+    addAuto("Six-Ball Middle Trench", new Trench6M());
+    addAuto("Eight-Ball Middle Trench", new Trench8M());
+    addAuto("Eight-Ball Left Trench", new Trench8L());
+    addAuto("Ten-Ball Steal", new Steal10());
+    addAuto("Simply shoot 3 balls", new Shoot3());
+    addAuto("Generator", new GeneratorRun());
+    // Routines written as files in the deploy directory.
+    for (AutoFile file : AutoFile.getAll()) addAuto(file.getName(), new FileAuto(file));
     autoChooser.addOption("Play Amogus", new SequentialCommandGroup(new PlaySong("AMOGUS.chrp")));
     autoChooser.addOption(
         "Play Megalovenia", new SequentialCommandGroup(new PlaySong("MEGALOV.chrp")));
@@ -212,6 +242,20 @@ public class RobotContainer {
     SmartDashboard.putData("Auto Chooser", autoChooser);
   }
 
+  private void addAuto(String name, SequentialCommandGroup routine) {
+    autos.put(name, routine);
+    autoChooser.addOption(name, routine);
+  }
+
+  /**
+   * Returns the autonomous routines on the chooser, by the name they are listed under.
+   *
+   * @return Routines, in the order they were added.
+   */
+  public Map<String, SequentialCommandGroup> getAutonomousRoutines() {
+    return Collections.unmodifiableMap(autos);
+  }
+
   /**
    * Use this to pass the autonomous command to the main {@link Robot} class.
    *
@@ -220,4 +264,20 @@ public class RobotContainer {
   public Command getAutonomousCommand() {
     return autoChooser.getSelected();
   }
+
+  /**
+   * Build and warm up the autonomous routine selected on the chooser, in the background, whenever
+   * the selection or the alliance changes. Meant to be called while disabled.
+   */
+  public void warmupAutonomous() {
+    SequentialCommandGroup selected = autoChooser.getSelected();
+    boolean mirrored = FieldTransform.isMirrored();
+    if (selected == warmedAuto && mirrored == warmedMirrored) return;
+
+    warmedAuto = selected;
+    warmedMirrored = mirrored;
+    if (selected instanceof AutoRoutine) {
+      TrajectoryLoader.prioritize(((AutoRoutine) selected)::warmup);
+    }
+  }
 }
@@ -0,0 +1,138 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import edu.wpi.first.wpilibj2.command.CommandGroupBase;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.robot.commands.drive.FollowTrajectory;
+import frc.robot.utils.LazyTrajectory;
+import frc.robot.utils.TrajectoryChain;
+import frc.robot.utils.rotationlib.Supplier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Autonomous routine that keeps track of the paths it drives, so they can be built and warmed up
+ * while the robot is disabled instead of on the first cycle of autonomous. Its steps are added with
+ * {@link #addSteps} rather than {@link #addCommands}, so each one records when it ran.
+ */
+public abstract class AutoRoutine extends SequentialCommandGroup {
+
+  private final List<FollowTrajectory> paths = new ArrayList<FollowTrajectory>();
+  private final List<Step> steps = new ArrayList<Step>();
+
+  /**
+   * Adds commands to run one after another, each timed as a step of the routine.
+   *
+   * @param commands Commands to add, in order.
+   */
+  protected final void addSteps(Command... commands) {
+    Step[] timed = new Step[commands.length];
+    for (int i = 0; i < commands.length; i++) {
+      timed[i] = new Step(commands[i]);
+      steps.add(timed[i]);
+    }
+    addCommands(timed);
+  }
+
+  /** Returns the steps of the routine, in order, with when each last ran. */
+  public List<Step> getSteps() {
+    return Collections.unmodifiableList(steps);
+  }
+
+  /**
+   * Creates a command to follow a path as part of this routine.
+   *
+   * @param path Path to follow.
+   * @param rotation Heading to hold while following it.
+   * @return Command following the path.
+   */
+  protected FollowTrajectory follow(LazyTrajectory path, Rotation2d rotation) {
+    return record(new FollowTrajectory(path, rotation));
+  }
+
+  /**
+   * Creates a command to follow a path while turning, as part of this routine.
+   *
+   * @param path Path to follow.
+   * @param heading Heading profile, timed from the start of the path.
+   * @return Command following the path.
+   */
+  protected FollowTrajectory follow(LazyTrajectory path, Supplier heading) {
+    return record(new FollowTrajectory(path, heading));
+  }
+
+  /**
+   * Creates a command to drive a chain of paths without stopping between them, as part of this
+   * routine.
+   *
+   * @param chain Paths to follow.
+   * @param rotation Heading to hold while following them.
+   * @return Command following the paths.
+   */
+  protected FollowTrajectory follow(TrajectoryChain chain, Rotation2d rotation) {
+    return record(new FollowTrajectory(chain, rotation));
+  }
+
+  private FollowTrajectory record(FollowTrajectory command) {
+    paths.add(command);
+    return command;
+  }
+
+  /** Build every path in the routine and run the follower over them to get it compiled. */
+  public void warmup() {
+    for (FollowTrajectory path : paths) path.warmup();
+  }
+
+  /** Command run as a step of a routine, which records when it starts and ends. */
+  public static final class Step extends CommandBase {
+
+    private final Command command;
+    private double start = Double.NaN;
+    private double end = Double.NaN;
+
+    private Step(Command command) {
+      CommandGroupBase.registerGroupedCommands(command);
+      this.command = command;
+      m_requirements.addAll(command.getRequirements());
+      setName(command.getName());
+    }
+
+    @Override
+    public void initialize() {
+      start = Timer.getFPGATimestamp();
+      end = Double.NaN;
+      command.initialize();
+    }
+
+    @Override
+    public void execute() {
+      command.execute();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+      command.end(interrupted);
+      end = Timer.getFPGATimestamp();
+    }
+
+    @Override
+    public boolean isFinished() {
+      return command.isFinished();
+    }
+
+    @Override
+    public boolean runsWhenDisabled() {
+      return command.runsWhenDisabled();
+    }
+
+    /** Returns how long the step last ran for, or zero if it has not run (Seconds). */
+    public double getDuration() {
+      if (Double.isNaN(start)) return 0.0;
+      return (Double.isNaN(end) ? Timer.getFPGATimestamp() : end) - start;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package frc.robot.commands.auto;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
+import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
+import edu.wpi.first.wpilibj2.command.WaitCommand;
+import frc.robot.Constants;
+import frc.robot.commands.drive.FollowTrajectory;
+import frc.robot.commands.groups.AutoIntake;
+import frc.robot.commands.groups.AutoShoot;
+import frc.robot.commands.hopper.SpinHopper;
+import frc.robot.commands.intake.SpinIntake;
+import frc.robot.commands.sensors.ResetGyro;
+import frc.robot.commands.sensors.ResetOdometry;
+import frc.robot.commands.shooter.ShooterVelocity;
+import frc.robot.commands.turret.TurretAngle;
+import frc.robot.commands.turret.TurretPower;
+import frc.robot.utils.AutoFile;
+
+/** Autonomous routine built from an {@link AutoFile} in the deploy directory. */
+public class FileAuto extends AutoRoutine {
+
+  /**
+   * Creates a new FileAuto.
+   *
+   * @param file Routine to run.
+   */
+  public FileAuto(AutoFile file) {
+    setName(file.getName());
+
+    for (AutoFile.Step step : file.getSteps()) {
+      addSteps(toCommand(step));
+    }
+  }
+
+  private Command toCommand(AutoFile.Step step) {
+    switch (step.type) {
+      case START:
+        return new ResetGyro().andThen(new ResetOdometry(step.pose));
+      case SHOOT:
+        return new AutoShoot(true).withTimeout(step.value).andThen(new AutoShoot(false));
+      case PATH:
+        FollowTrajectory path = follow(step.path, step.heading);
+        return step.intake ? new ParallelDeadlineGroup(path, new AutoIntake(true)) : path;
+      case TURRET:
+        return new TurretAngle(step.value);
+      case WAIT:
+        return new WaitCommand(step.value);
+      case STOP:
+        return new ParallelCommandGroup(
+            new SpinIntake(0.0, false),
+            new SpinHopper(0.0, false),
+            new TurretPower(0.0),
+            new ShooterVelocity(Constants.shooter.IDLE_VEL, true));
+      default:
+        throw new IllegalArgumentException("Unknown step " + step.type);
+    }
+  }
+}
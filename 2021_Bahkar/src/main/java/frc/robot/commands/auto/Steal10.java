@@ -5,27 +5,22 @@
 package frc.robot.commands.auto;
 
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import frc.robot.Robot;
-import frc.robot.commands.drive.FollowTrajectory;
 import frc.robot.commands.sensors.ResetOdometry;
 import frc.robot.utils.Trajectories;
 
 // NOTE:  Consider using this command inline, rather than writing a subclass.  For more
 // information, see:
 // https://docs.wpilib.org/en/stable/docs/software/commandbased/convenience-features.html
-public class Steal10 extends SequentialCommandGroup {
+public class Steal10 extends AutoRoutine {
   /** Creates a new Steal10. */
   public Steal10() {
     if (Robot.isReal()) {
-      addCommands();
+      addSteps();
     } else {
-      addCommands(
+      addSteps(
           new ResetOdometry(Trajectories.WheelTenBall.POSE1),
-          new FollowTrajectory(Trajectories.WheelTenBall.TO_WHEEL, new Rotation2d()),
-          new FollowTrajectory(Trajectories.WheelTenBall.FIRST_SHOT, new Rotation2d()),
-          new FollowTrajectory(Trajectories.WheelTenBall.TURN_IN, new Rotation2d()),
-          new FollowTrajectory(Trajectories.WheelTenBall.SECOND_SHOOT, new Rotation2d()));
+          follow(Trajectories.WheelTenBall.ALL, new Rotation2d()));
     }
   }
 }
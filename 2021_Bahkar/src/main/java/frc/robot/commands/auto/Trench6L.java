@@ -7,9 +7,7 @@ package frc.robot.commands.auto;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import frc.robot.Constants;
-import frc.robot.commands.drive.FollowTrajectory;
 import frc.robot.commands.groups.AutoIntake;
 import frc.robot.commands.groups.AutoShoot;
 import frc.robot.commands.hopper.SpinHopper;
@@ -24,10 +22,10 @@ import frc.robot.utils.Trajectories;
 // NOTE:  Consider using this command inline, rather than writing a subclass.  For more
 // information, see:
 // https://docs.wpilib.org/en/stable/docs/software/commandbased/convenience-features.html
-public class Trench6L extends SequentialCommandGroup {
+public class Trench6L extends AutoRoutine {
   /** Creates a new SixBall. */
   public Trench6L() {
-    addCommands(
+    addSteps(
         // First reset the sensors and odometry.
         new ResetGyro(),
         new ResetOdometry(Trajectories.trench8L.POSE1),
@@ -38,10 +36,10 @@ public class Trench6L extends SequentialCommandGroup {
         new AutoShoot(false),
         new ParallelDeadlineGroup(
             // Drive down the trench.
-            new FollowTrajectory(Trajectories.trench6L.DOWN_TRENCH, new Rotation2d()),
+            follow(Trajectories.trench6L.DOWN_TRENCH, new Rotation2d()),
             // Begin intaking balls
             new AutoIntake(true)),
-        new FollowTrajectory(Trajectories.trench6L.TO_SHOOT, new Rotation2d()),
+        follow(Trajectories.trench6L.TO_SHOOT, new Rotation2d()),
         new AutoShoot(true).withTimeout(5.0),
         new AutoShoot(false),
         new ParallelCommandGroup(
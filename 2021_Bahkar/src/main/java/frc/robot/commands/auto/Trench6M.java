@@ -7,9 +7,7 @@ package frc.robot.commands.auto;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import frc.robot.Constants;
-import frc.robot.commands.drive.FollowTrajectory;
 import frc.robot.commands.groups.AutoIntake;
 import frc.robot.commands.groups.AutoShoot;
 import frc.robot.commands.hopper.SpinHopper;
@@ -23,10 +21,10 @@ import frc.robot.utils.Trajectories;
 // NOTE:  Consider using this command inline, rather than writing a subclass.  For more
 // information, see:
 // https://docs.wpilib.org/en/stable/docs/software/commandbased/convenience-features.html
-public class Trench6M extends SequentialCommandGroup {
+public class Trench6M extends AutoRoutine {
   /** Creates a new SixBall. */
   public Trench6M() {
-    addCommands(
+    addSteps(
         // First reset the sensors and odometry.
         new ResetGyro(),
         new ResetOdometry(Trajectories.trench8M.POSE1),
@@ -36,10 +34,10 @@ public class Trench6M extends SequentialCommandGroup {
         new AutoShoot(false),
         new ParallelDeadlineGroup(
             // Drive down the trench.
-            new FollowTrajectory(Trajectories.trench6M.DOWN_TRENCH, new Rotation2d()),
+            follow(Trajectories.trench6M.DOWN_TRENCH, new Rotation2d()),
             // Begin intaking balls
             new AutoIntake(true)),
-        new FollowTrajectory(Trajectories.trench6M.TO_SHOOT, new Rotation2d()),
+        follow(Trajectories.trench6M.TO_SHOOT, new Rotation2d()),
         new AutoShoot(true).withTimeout(3.5),
         new AutoShoot(false),
         new ParallelCommandGroup(
@@ -7,9 +7,7 @@ package frc.robot.commands.auto;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
-import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import frc.robot.Constants;
-import frc.robot.commands.drive.FollowTrajectory;
 import frc.robot.commands.groups.AutoIntake;
 import frc.robot.commands.groups.AutoShoot;
 import frc.robot.commands.hopper.SpinHopper;
@@ -23,11 +21,11 @@ import frc.robot.utils.Trajectories;
 // NOTE:  Consider using this command inline, rather than writing a subclass.  For more
 // information, see:
 // https://docs.wpilib.org/en/stable/docs/software/commandbased/convenience-features.html
-public class Trench8M extends SequentialCommandGroup {
+public class Trench8M extends AutoRoutine {
 
   /** Creates a new Trench8M. */
   public Trench8M() {
-    addCommands(
+    addSteps(
         // First reset the sensors and odometry.
         new ResetGyro(),
         new ResetOdometry(Trajectories.trench8M.POSE1),
@@ -38,14 +36,11 @@ public class Trench8M extends SequentialCommandGroup {
         // End the auto-aiming and shooting.
         new AutoShoot(false),
         new ParallelDeadlineGroup(
-            new SequentialCommandGroup(
-                // Drive down the trench.
-                new FollowTrajectory(Trajectories.trench8M.DOWN_TRENCH, new Rotation2d()),
-                new FollowTrajectory(Trajectories.trench8M.BALL1, new Rotation2d()),
-                new FollowTrajectory(Trajectories.trench8M.BALL2, new Rotation2d())),
+            // Drive down the trench.
+            follow(Trajectories.trench8M.COLLECT, new Rotation2d()),
             // Begin intaking balls
             new AutoIntake(true)),
-        new FollowTrajectory(Trajectories.trench8M.TO_SHOOT, new Rotation2d()),
+        follow(Trajectories.trench8M.TO_SHOOT, new Rotation2d()),
         new AutoShoot(true).withTimeout(5.0),
         new AutoShoot(false),
         new ParallelCommandGroup(
@@ -0,0 +1,133 @@
+package frc.robot.commands.drive;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants;
+import frc.robot.subsystems.drive.Swerve;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Drives the robot straight on an open loop voltage ramp (quasistatic) or step (dynamic) and logs
+ * voltage, position and velocity to a CSV file in the operating directory, to be fit with {@link
+ * frc.robot.utils.FeedforwardFitter}.
+ */
+public class Characterize extends CommandBase {
+
+  /** Type of characterization test. */
+  public enum Test {
+    QUASISTATIC,
+    DYNAMIC
+  }
+
+  private final Swerve drive = Swerve.getInstance();
+  private final Test test;
+  private final boolean forward;
+
+  private final Timer timer = new Timer();
+
+  // Samples are kept in memory and only written out once the test ends.
+  private final double[] times;
+  private final double[] voltages;
+  private final double[] positions;
+  private final double[] velocities;
+  private int count = 0;
+  private double lastVoltage = 0.0;
+
+  /**
+   * Constructs a new Characterize command.
+   *
+   * @param test Type of test to run.
+   * @param forward True to drive forward, false to drive backward.
+   */
+  public Characterize(Test test, boolean forward) {
+    addRequirements(drive);
+
+    this.test = test;
+    this.forward = forward;
+
+    double length =
+        test == Test.QUASISTATIC
+            ? Constants.drive.characterization.QUASISTATIC_TIME
+            : Constants.drive.characterization.DYNAMIC_TIME;
+    int capacity = (int) Math.ceil(length / Constants.drive.CONTROL_PERIOD);
+
+    times = new double[capacity];
+    voltages = new double[capacity];
+    positions = new double[capacity];
+    velocities = new double[capacity];
+  }
+
+  /** Returns the name of the log file for this test, such as "quasistatic-forward". */
+  public String getTestName() {
+    return test.name().toLowerCase() + (forward ? "-forward" : "-backward");
+  }
+
+  // Called when the command is initially scheduled.
+  @Override
+  public void initialize() {
+    count = 0;
+    lastVoltage = 0.0;
+    timer.reset();
+    timer.start();
+  }
+
+  // Called every time the scheduler runs while the command is scheduled.
+  @Override
+  public void execute() {
+    double elapsed = timer.get() - Constants.drive.characterization.SETTLE_TIME;
+
+    // Give the modules time to point straight before pushing.
+    if (elapsed < 0.0) {
+      drive.setDriveVoltage(0.0);
+      return;
+    }
+
+    // The measurements taken now are the response to the voltage applied last loop.
+    times[count] = Timer.getFPGATimestamp();
+    voltages[count] = lastVoltage;
+    positions[count] = drive.getDrivePosition();
+    velocities[count] = drive.getDriveVelocity();
+    count++;
+
+    double voltage =
+        test == Test.QUASISTATIC
+            ? Constants.drive.characterization.RAMP_RATE * elapsed
+            : Constants.drive.characterization.STEP_VOLTAGE;
+    if (!forward) voltage = -voltage;
+
+    drive.setDriveVoltage(voltage);
+    lastVoltage = voltage;
+  }
+
+  // Called once the command ends or is interrupted.
+  @Override
+  public void end(boolean interrupted) {
+    drive.stop();
+    write();
+  }
+
+  // Returns true when the command should end.
+  @Override
+  public boolean isFinished() {
+    return count >= times.length;
+  }
+
+  private void write() {
+    File directory = new File(Filesystem.getOperatingDirectory(), "characterization");
+    directory.mkdirs();
+    File file = new File(directory, getTestName() + ".csv");
+
+    try (PrintWriter writer = new PrintWriter(file)) {
+      writer.println("timestamp,voltage,position,velocity");
+      for (int i = 0; i < count; i++) {
+        writer.println(times[i] + "," + voltages[i] + "," + positions[i] + "," + velocities[i]);
+      }
+    } catch (IOException e) {
+      DriverStation.reportError("Could not write " + file + ": " + e.getMessage(), false);
+    }
+  }
+}
@@ -5,68 +5,427 @@
 package frc.robot.commands.drive;
 
 import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.controller.HolonomicDriveController;
+import edu.wpi.first.wpilibj.controller.PIDController;
 import edu.wpi.first.wpilibj.controller.ProfiledPIDController;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
-import edu.wpi.first.wpilibj.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.trajectory.TrapezoidProfile.Constraints;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants;
 import frc.robot.subsystems.drive.Odometry;
 import frc.robot.subsystems.drive.Swerve;
+import frc.robot.utils.FieldTransform;
+import frc.robot.utils.LazyTrajectory;
+import frc.robot.utils.Replanner;
+import frc.robot.utils.TrackingLog;
+import frc.robot.utils.TrajectoryChain;
+import frc.robot.utils.TrajectorySampler;
+import frc.robot.utils.rotationlib.Supplier;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FollowTrajectory extends CommandBase {
 
-  Trajectory trajectory;
-  Rotation2d rotation;
+  LazyTrajectory[] paths;
+  Trajectory[] trajectories;
+  Supplier heading;
 
   Swerve swerve = Swerve.getInstance();
   Odometry odometry = Odometry.getInstance();
 
-  private static HolonomicDriveController controller;
+  /**
+   * Samplers for the paths as generated, as drawn and mirrored for the other alliance, and for what
+   * is being followed after replanning.
+   */
+  private final TrajectorySampler[][] original = new TrajectorySampler[2][];
+  private TrajectorySampler[] samplers = null;
+  /** Whether the paths are being driven mirrored, on the other alliance's side. */
+  private boolean mirrored = false;
+  /** Time each segment starts at, followed by the time the last one ends (Seconds). */
+  private final double[] starts;
+  /** Waypoints each segment is being followed through. */
+  private final List<List<Pose2d>> waypoints = new ArrayList<List<Pose2d>>();
+  /** Trajectories each segment is being followed along, drawn on the field. */
+  private final List<Trajectory> planned = new ArrayList<Trajectory>();
+  private int segment = 0;
+  private final double[] speeds = new double[3];
+  /** Pose of the robot this loop, as {x, y, heading}. */
+  private final double[] pose = new double[3];
+
+  private final Replanner replanner = Replanner.getInstance();
+  private long requestId = 0;
+  private boolean requestPending = false;
+  private double requestTime = 0.0;
+  private int requestSegment = 0;
+  private double lastReplan = 0.0;
+
+  // Field relative velocity of the robot, measured from odometry.
+  private double lastX = 0.0;
+  private double lastY = 0.0;
+  private double lastTime = Double.NaN;
+  private double vx = 0.0;
+  private double vy = 0.0;
+
+  private final TrackingLog log = new TrackingLog(swerve.getField());
+
+  private static long nextRequestId = 0;
+
+  private static final PIDController xController = Constants.drive.xPID.xPID;
+  private static final PIDController yController = Constants.drive.yPID.yPID;
+  private static final ProfiledPIDController thetaController = Constants.drive.thetaPID.thetaPID;
   private static Timer timer = new Timer();
 
+  // Copies of the controllers that are only run while warming up, so the real ones keep their
+  // state.
+  private static PIDController xWarmup = null;
+  private static PIDController yWarmup = null;
+  private static ProfiledPIDController thetaWarmup = null;
+
+  /** Number of times to run the controller over a path while warming up. */
+  private static final int WARMUP_PASSES = 5;
+
   /** Creates a new FollowTrajectory. */
   public FollowTrajectory(Trajectory trajectory, Rotation2d rotation) {
+    this(null, new Trajectory[] {trajectory}, Supplier.of(rotation));
+  }
+
+  /** Creates a new FollowTrajectory on a path that is only loaded once the command starts. */
+  public FollowTrajectory(LazyTrajectory path, Rotation2d rotation) {
+    this(path, Supplier.of(rotation));
+  }
+
+  /**
+   * Creates a new FollowTrajectory that turns the robot while it drives, for example to face the
+   * intake towards balls on the way past.
+   *
+   * @param path Path to follow.
+   * @param heading Heading profile, timed from the start of the path.
+   */
+  public FollowTrajectory(LazyTrajectory path, Supplier heading) {
+    this(new LazyTrajectory[] {path}, null, heading);
+  }
+
+  /**
+   * Creates a new FollowTrajectory that drives a chain of paths as one, without stopping between
+   * them.
+   *
+   * @param chain Paths to follow.
+   * @param rotation Heading to hold.
+   */
+  public FollowTrajectory(TrajectoryChain chain, Rotation2d rotation) {
+    this(chain, Supplier.of(rotation));
+  }
+
+  /**
+   * Creates a new FollowTrajectory that drives a chain of paths as one, without stopping between
+   * them, while turning.
+   *
+   * @param chain Paths to follow.
+   * @param heading Heading profile, timed from the start of the first path.
+   */
+  public FollowTrajectory(TrajectoryChain chain, Supplier heading) {
+    this(chain.getSegments().toArray(new LazyTrajectory[0]), null, heading);
+  }
+
+  private FollowTrajectory(LazyTrajectory[] paths, Trajectory[] trajectories, Supplier heading) {
     addRequirements(swerve);
 
-    this.trajectory = trajectory;
-    this.rotation = rotation;
+    this.paths = paths;
+    this.trajectories = trajectories;
+    this.heading = heading;
 
-    ProfiledPIDController thetaController = Constants.drive.thetaPID.thetaPID;
-    thetaController.enableContinuousInput(-Math.PI, Math.PI);
+    int count = paths != null ? paths.length : trajectories.length;
+    starts = new double[count + 1];
+    for (int i = 0; i < count; i++) {
+      waypoints.add(paths != null ? paths[i].getWaypoints() : null);
+    }
 
-    controller =
-        new HolonomicDriveController(
-            Constants.drive.xPID.xPID, Constants.drive.yPID.yPID, thetaController);
+    thetaController.enableContinuousInput(-Math.PI, Math.PI);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
+    mirrored = FieldTransform.isMirrored();
+    int side = mirrored ? 1 : 0;
+    if (original[side] == null) {
+      original[side] = new TrajectorySampler[starts.length - 1];
+      // The paths are normally built in the background by now; this only blocks if not.
+      for (int i = 0; i < original[side].length; i++) {
+        original[side][i] = new TrajectorySampler(getTrajectory(i, mirrored));
+      }
+    }
+
+    // Undo any replanning from the last time this ran.
+    samplers = original[side].clone();
+    starts[0] = 0.0;
+    planned.clear();
+    for (int i = 0; i < samplers.length; i++) {
+      samplers[i].reset();
+      starts[i + 1] = starts[i] + samplers[i].getTotalTime();
+      if (paths != null) waypoints.set(i, getPath(i).getWaypoints());
+      planned.add(getTrajectory(i, mirrored));
+    }
+    requestPending = false;
+    lastReplan = 0.0;
+    lastTime = Double.NaN;
+    vx = 0.0;
+    vy = 0.0;
+
+    // The controllers are shared, so drop what the last path or warm up left in them, and start
+    // the heading profile from where the robot is pointing now.
+    odometry.getPose(pose);
+    double sign = Constants.drive.GYRO_INVERTED ? -1.0 : 1.0;
+    xController.reset();
+    yController.reset();
+    thetaController.reset(sign * pose[2], swerve.getRotationalVelocity());
+
+    String name = paths != null ? getPath(0).getName() : "trajectory";
+    log.start(name, starts[samplers.length], Constants.drive.CONTROL_PERIOD, samplers.length);
+    log.setPlanned(planned);
+
     timer.reset();
     timer.start();
+    startSegment(0);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    ChassisSpeeds speeds =
-        controller.calculate(odometry.getPose(), trajectory.sample(timer.get()), new Rotation2d());
-    swerve.setChassisSpeeds(speeds);
-    System.out.println("driving running");
+    double time = timer.get();
+    Replanner.Result result = replanner.poll();
+    if (result != null && requestPending && result.id == requestId) replace(result);
+
+    // Move straight on to the next segment, on the same clock, so there is no stop in between.
+    while (segment + 1 < samplers.length && time >= starts[segment + 1]) startSegment(segment + 1);
+
+    TrajectorySampler sampler = samplers[segment];
+    sampler.sample(time - starts[segment]);
+    odometry.getPose(pose);
+    double robotHeading = pose[2];
+    // The heading profile turns around with the field when the paths are mirrored.
+    double goalHeading = heading.getRadians(time) + (mirrored ? Math.PI : 0.0);
+    calculate(
+        sampler,
+        pose[0],
+        pose[1],
+        robotHeading,
+        goalHeading,
+        heading.getVelocity(time),
+        xController,
+        yController,
+        thetaController,
+        speeds);
+    measureVelocity(pose[0], pose[1], time);
+
+    // Log what was sent in the field's frame and the heading's sign, where the errors are.
+    double cos = Math.cos(robotHeading);
+    double sin = Math.sin(robotHeading);
+    log.record(
+        time,
+        segment,
+        sampler,
+        goalHeading,
+        pose[0],
+        pose[1],
+        robotHeading,
+        speeds[0] * cos - speeds[1] * sin,
+        speeds[0] * sin + speeds[1] * cos,
+        (Constants.drive.GYRO_INVERTED ? -1.0 : 1.0) * speeds[2]);
+    replanIfOffPath(pose[0], pose[1], time);
+
+    // Feed the path's acceleration forward, rotated into the robot's frame like the speeds are.
+    double direction = sampler.getHeading() - robotHeading;
+    swerve.setChassisSpeeds(
+        speeds[0],
+        speeds[1],
+        speeds[2],
+        sampler.getAcceleration() * Math.cos(direction),
+        sampler.getAcceleration() * Math.sin(direction),
+        Constants.drive.DISCRETIZE);
   }
 
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
     swerve.stop();
-    System.out.println("driving done");
+    log.finish();
+  }
+
+  /**
+   * Build the path and run the controller along it, so the first cycle of autonomous does not wait
+   * on generation or the JIT. Nothing is sent to the drivetrain. Meant to be run off the main loop.
+   */
+  public void warmup() {
+    TrajectorySampler[] warm = new TrajectorySampler[starts.length - 1];
+    for (int i = 0; i < warm.length; i++) {
+      warm[i] = new TrajectorySampler(getTrajectory(i, FieldTransform.isMirrored()));
+    }
+    double[] out = new double[3];
+    // The follower may start while this is still running, and sampling moves the profile's cursor.
+    Supplier heading = this.heading.copy();
+
+    synchronized (FollowTrajectory.class) {
+      if (thetaWarmup == null) {
+        xWarmup =
+            new PIDController(
+                Constants.drive.xPID.kP, Constants.drive.xPID.kI, Constants.drive.xPID.kD);
+        yWarmup =
+            new PIDController(
+                Constants.drive.yPID.kP, Constants.drive.yPID.kI, Constants.drive.yPID.kD);
+        thetaWarmup =
+            new ProfiledPIDController(
+                Constants.drive.thetaPID.kP,
+                Constants.drive.thetaPID.kI,
+                Constants.drive.thetaPID.kD,
+                new Constraints(
+                    Constants.drive.thetaPID.MAX_VELOCITY, Constants.drive.thetaPID.MAX_ACCEL));
+        thetaWarmup.enableContinuousInput(-Math.PI, Math.PI);
+      }
+
+      for (int i = 0; i < WARMUP_PASSES; i++) {
+        double offset = 0.0;
+        for (TrajectorySampler sampler : warm) {
+          sampler.reset();
+          for (double t = 0.0; t <= sampler.getTotalTime(); t += Constants.drive.CONTROL_PERIOD) {
+            sampler.sample(t);
+            double goal = heading.getRadians(offset + t);
+            double rate = heading.getVelocity(offset + t);
+            double x = sampler.getX();
+            double y = sampler.getY();
+            calculate(sampler, x, y, goal, goal, rate, xWarmup, yWarmup, thetaWarmup, out);
+          }
+          offset += sampler.getTotalTime();
+        }
+      }
+    }
+  }
+
+  /** Switch to a replanned path, moving the segments after it to start when it ends. */
+  private void replace(Replanner.Result result) {
+    requestPending = false;
+    if (result.trajectory == null || requestSegment != segment) return;
+
+    samplers[segment] = new TrajectorySampler(result.trajectory);
+    waypoints.set(segment, result.waypoints);
+    planned.set(segment, result.trajectory);
+    log.setPlanned(planned);
+
+    // The new path starts from where the robot was when it was asked for.
+    double shift = requestTime + samplers[segment].getTotalTime() - starts[segment + 1];
+    starts[segment] = requestTime;
+    for (int i = segment + 1; i < starts.length; i++) starts[i] += shift;
+  }
+
+  /** Ask for a new path from where the robot is if it has been pushed too far off this one. */
+  private void replanIfOffPath(double x, double y, double time) {
+    if (!Constants.drive.auto.REPLAN_ENABLED || paths == null || requestPending) return;
+    if (time - lastReplan < Constants.drive.auto.REPLAN_COOLDOWN) return;
+    if (starts[segment + 1] - time < Constants.drive.auto.REPLAN_MIN_TIME) return;
+
+    TrajectorySampler sampler = samplers[segment];
+    double error = Math.hypot(x - sampler.getX(), y - sampler.getY());
+    if (error < Constants.drive.auto.REPLAN_ERROR) return;
+
+    // Keep the waypoints the path has not reached yet, and always the end.
+    List<Pose2d> path = waypoints.get(segment);
+    List<Pose2d> remaining = new ArrayList<Pose2d>();
+    double now = time - starts[segment];
+    double passed = 0.0;
+    for (int i = 1; i < path.size(); i++) {
+      Pose2d waypoint = path.get(i);
+      passed = sampler.getTimeNearest(waypoint.getX(), waypoint.getY(), passed);
+      if (passed > now || i == path.size() - 1) remaining.add(waypoint);
+    }
+
+    requestId = ++nextRequestId;
+    requestPending = true;
+    requestTime = time;
+    requestSegment = segment;
+    lastReplan = time;
+    replanner.request(
+        new Replanner.Request(
+            requestId, x, y, vx, vy, remaining, getPath(segment).getConfig()));
+  }
+
+  /** Differentiate odometry for the robot's velocity, filtered against vision corrections. */
+  private void measureVelocity(double x, double y, double time) {
+    double dt = time - lastTime;
+    if (dt > 0.0) {
+      double alpha = dt / (Constants.drive.auto.VELOCITY_FILTER + dt);
+      vx += alpha * ((x - lastX) / dt - vx);
+      vy += alpha * ((y - lastY) / dt - vy);
+    }
+    lastX = x;
+    lastY = y;
+    lastTime = time;
+  }
+
+  /** Returns a path, mirrored if the paths are being driven on the other alliance's side. */
+  private LazyTrajectory getPath(int index) {
+    return mirrored ? paths[index].mirrored() : paths[index];
+  }
+
+  private Trajectory getTrajectory(int index, boolean mirror) {
+    if (paths != null) return mirror ? paths[index].mirrored().get() : paths[index].get();
+    return mirror ? FieldTransform.MIRROR.apply(trajectories[index]) : trajectories[index];
+  }
+
+  private void startSegment(int index) {
+    if (index > 0) log.endSegment();
+    segment = index;
+  }
+
+  /**
+   * Holonomic drive controller, as in {@link
+   * edu.wpi.first.wpilibj.controller.HolonomicDriveController}, without allocating. The path's
+   * velocity is fed forward along its direction of travel, the x and y controllers correct the
+   * position on the field. The heading profile's rate is fed forward and the theta controller
+   * corrects the heading, in the frame of the chassis speeds.
+   *
+   * @param goal Sampler holding the current point on the path.
+   * @param x X position of the robot (Meters).
+   * @param y Y position of the robot (Meters).
+   * @param rotation Heading of the robot (Radians).
+   * @param goalHeading Heading the robot should be at (Radians).
+   * @param goalRate Rate the goal heading is changing at (Radians per Second).
+   * @param xPID Controller on the X position.
+   * @param yPID Controller on the Y position.
+   * @param thetaPID Controller on the heading.
+   * @param out Array to receive the robot relative {vx, vy, omega}.
+   */
+  private static void calculate(
+      TrajectorySampler goal,
+      double x,
+      double y,
+      double rotation,
+      double goalHeading,
+      double goalRate,
+      PIDController xPID,
+      PIDController yPID,
+      ProfiledPIDController thetaPID,
+      double[] out) {
+    double fieldX =
+        goal.getVelocity() * Math.cos(goal.getHeading()) + xPID.calculate(x, goal.getX());
+    double fieldY =
+        goal.getVelocity() * Math.sin(goal.getHeading()) + yPID.calculate(y, goal.getY());
+
+    double cos = Math.cos(rotation);
+    double sin = Math.sin(rotation);
+    out[0] = fieldX * cos + fieldY * sin;
+    out[1] = -fieldX * sin + fieldY * cos;
+
+    // Odometry shares the gyro's sign, which may be reversed from the chassis speeds.
+    double sign = Constants.drive.GYRO_INVERTED ? -1.0 : 1.0;
+    double measured = sign * rotation;
+    double target = measured + Math.IEEEremainder(sign * goalHeading - measured, 2.0 * Math.PI);
+    out[2] = sign * goalRate + thetaPID.calculate(measured, target);
   }
 
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    return timer.get() > trajectory.getTotalTimeSeconds();
+    return timer.get() > starts[starts.length - 1];
   }
 }
@@ -15,6 +15,7 @@ public class Straight extends CommandBase {
   private double distance;
   private double startX;
   private double startY;
+  private final double[] pose = new double[3];
 
   /** Creates a new Directional. */
   public Straight(double distance) {
@@ -26,8 +27,9 @@ public class Straight extends CommandBase {
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    startX = odometry.getPose().getX();
-    startY = odometry.getPose().getY();
+    odometry.getPose(pose);
+    startX = pose[0];
+    startY = pose[1];
   }
 
   // Called every time the scheduler runs while the command is scheduled.
@@ -45,7 +47,7 @@ public class Straight extends CommandBase {
   // Returns true when the command should end.
   @Override
   public boolean isFinished() {
-    return Math.hypot(odometry.getPose().getX() - startX, odometry.getPose().getY() - startY)
-        >= distance;
+    odometry.getPose(pose);
+    return Math.hypot(pose[0] - startX, pose[1] - startY) >= distance;
   }
 }
@@ -29,6 +29,6 @@ public class ResetGyro extends InstantCommand {
   @Override
   public void initialize() {
     sensors.setPigeonAngle(angle.getDegrees());
-    Swerve.getInstance().setRotSetpoint(0.0);
+    Swerve.getInstance().holdHeading();
   }
 }
@@ -8,6 +8,7 @@ import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import frc.robot.subsystems.drive.Odometry;
 import frc.robot.subsystems.sensors.Sensors;
+import frc.robot.utils.FieldTransform;
 
 // NOTE:  Consider using this command inline, rather than writing a subclass.  For more
 // information, see:
@@ -17,19 +18,30 @@ public class ResetOdometry extends InstantCommand {
   Sensors sensors = Sensors.getInstance();
   Odometry odometry = Odometry.getInstance();
   Pose2d pose = null;
+  /** Whether the pose is drawn like the paths, and mirrored with them for the other alliance. */
+  boolean onPath;
 
+  /**
+   * Creates a new ResetOdometry to the start of a path.
+   *
+   * @param pose Pose in the frame the paths are drawn in, mirrored along with them.
+   */
   public ResetOdometry(Pose2d pose) {
     this.pose = pose;
+    this.onPath = true;
   }
 
+  /** Creates a new ResetOdometry to the origin of the field. */
   public ResetOdometry() {
-    this(new Pose2d());
+    this.pose = new Pose2d();
+    this.onPath = false;
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    odometry.setPose(pose);
-    sensors.setPigeonAngle(pose.getRotation().getDegrees());
+    Pose2d start = onPath ? FieldTransform.forAlliance().apply(pose) : pose;
+    odometry.setPose(start);
+    sensors.setPigeonAngle(start.getRotation().getDegrees());
   }
 }
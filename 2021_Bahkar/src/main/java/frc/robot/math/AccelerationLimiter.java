@@ -0,0 +1,169 @@
+package frc.robot.math;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Limits how quickly a 2D velocity and an angular velocity may change. Acceleration along the
+ * current direction of travel, acceleration across it (turning), angular acceleration and jerk are
+ * limited separately, and the along and across parts together are kept within the acceleration
+ * limit, the friction circle of the wheels. Jerk is only limited while speeding up or turning, so
+ * letting go of the stick brakes at once instead of carrying on accelerating while the acceleration
+ * ramps down. Works on primitives so it can run every loop without allocating. It is not thread
+ * safe, so change the limits from the thread that calls {@link #calculate}.
+ */
+public class AccelerationLimiter {
+
+  /** Calls further apart than this are treated as a fresh start from rest (Seconds). */
+  private static final double RESET_TIME = 0.25;
+
+  private double maxAccel;
+  private double maxCentripetalAccel;
+  private double maxAngularAccel;
+  private double maxJerk;
+
+  private double vx = 0.0;
+  private double vy = 0.0;
+  private double omega = 0.0;
+  private double ax = 0.0;
+  private double ay = 0.0;
+
+  private double lastTime = Double.NaN;
+
+  /**
+   * Constructs a new AccelerationLimiter.
+   *
+   * @param maxAccel Maximum acceleration, along the direction of travel or in total (Units per
+   *     Second Squared).
+   * @param maxCentripetalAccel Maximum acceleration across the direction of travel (Units per
+   *     Second Squared).
+   * @param maxAngularAccel Maximum angular acceleration (Radians per Second Squared).
+   * @param maxJerk Maximum change in acceleration while speeding up (Units per Second Cubed), or
+   *     infinity for none.
+   */
+  public AccelerationLimiter(
+      double maxAccel, double maxCentripetalAccel, double maxAngularAccel, double maxJerk) {
+    setLimits(maxAccel, maxCentripetalAccel, maxAngularAccel, maxJerk);
+  }
+
+  /**
+   * Change the limits.
+   *
+   * @param maxAccel Maximum acceleration, along the direction of travel or in total (Units per
+   *     Second Squared).
+   * @param maxCentripetalAccel Maximum acceleration across the direction of travel (Units per
+   *     Second Squared).
+   * @param maxAngularAccel Maximum angular acceleration (Radians per Second Squared).
+   * @param maxJerk Maximum change in acceleration while speeding up (Units per Second Cubed), or
+   *     infinity for none.
+   */
+  public void setLimits(
+      double maxAccel, double maxCentripetalAccel, double maxAngularAccel, double maxJerk) {
+    this.maxAccel = maxAccel;
+    this.maxCentripetalAccel = maxCentripetalAccel;
+    this.maxAngularAccel = maxAngularAccel;
+    this.maxJerk = maxJerk;
+  }
+
+  /**
+   * Move the limited velocity toward the desired velocity as far as the limits allow since the last
+   * call. Read the result with {@link #getX()}, {@link #getY()} and {@link #getOmega()}.
+   *
+   * @param desiredX Desired X velocity (Units per Second).
+   * @param desiredY Desired Y velocity (Units per Second).
+   * @param desiredOmega Desired angular velocity (Radians per Second).
+   */
+  public void calculate(double desiredX, double desiredY, double desiredOmega) {
+    double time = Timer.getFPGATimestamp();
+    double dt = time - lastTime;
+    lastTime = time;
+
+    // After a long gap (first call, or the robot was disabled) the robot is at rest.
+    if (!(dt <= RESET_TIME)) reset(0.0, 0.0, 0.0);
+    if (!(dt > 0.0)) return;
+
+    double dvx = desiredX - vx;
+    double dvy = desiredY - vy;
+
+    // Split the wanted acceleration into the part along the current velocity and the part across
+    // it, and clip each to its own limit, then both together to what the wheels can grip.
+    double speed = Math.hypot(vx, vy);
+    double wantX;
+    double wantY;
+    if (speed > 1e-6) {
+      double ux = vx / speed;
+      double uy = vy / speed;
+      double along = clamp((dvx * ux + dvy * uy) / dt, maxAccel);
+      double across = clamp((-dvx * uy + dvy * ux) / dt, maxCentripetalAccel);
+      double total = Math.hypot(along, across);
+      if (total > maxAccel) {
+        along *= maxAccel / total;
+        across *= maxAccel / total;
+      }
+      wantX = along * ux - across * uy;
+      wantY = along * uy + across * ux;
+    } else {
+      double magnitude = Math.hypot(dvx, dvy) / dt;
+      double scale = magnitude > maxAccel ? maxAccel / magnitude : 1.0;
+      wantX = dvx / dt * scale;
+      wantY = dvy / dt * scale;
+    }
+
+    // Limit how far the acceleration itself may change, unless it is to slow down.
+    boolean braking = wantX * vx + wantY * vy < 0.0;
+    double jerkX = wantX - ax;
+    double jerkY = wantY - ay;
+    double jerk = Math.hypot(jerkX, jerkY) / dt;
+    if (!braking && jerk > maxJerk) {
+      wantX = ax + jerkX * maxJerk / jerk;
+      wantY = ay + jerkY * maxJerk / jerk;
+    }
+
+    double stepX = wantX * dt;
+    double stepY = wantY * dt;
+    // Never step past the target, even if jerk limiting would carry the acceleration on.
+    if (Math.hypot(stepX, stepY) >= Math.hypot(dvx, dvy)) {
+      stepX = dvx;
+      stepY = dvy;
+    }
+
+    ax = stepX / dt;
+    ay = stepY / dt;
+    vx += stepX;
+    vy += stepY;
+    omega += clamp(desiredOmega - omega, maxAngularAccel * dt);
+  }
+
+  /**
+   * Set the limited velocity directly, for example to the measured velocity of the robot.
+   *
+   * @param x X velocity (Units per Second).
+   * @param y Y velocity (Units per Second).
+   * @param omega Angular velocity (Radians per Second).
+   */
+  public void reset(double x, double y, double omega) {
+    vx = x;
+    vy = y;
+    this.omega = omega;
+    ax = 0.0;
+    ay = 0.0;
+  }
+
+  /** Returns the limited X velocity (Units per Second). */
+  public double getX() {
+    return vx;
+  }
+
+  /** Returns the limited Y velocity (Units per Second). */
+  public double getY() {
+    return vy;
+  }
+
+  /** Returns the limited angular velocity (Radians per Second). */
+  public double getOmega() {
+    return omega;
+  }
+
+  private static double clamp(double value, double limit) {
+    return Math.max(-limit, Math.min(limit, value));
+  }
+}
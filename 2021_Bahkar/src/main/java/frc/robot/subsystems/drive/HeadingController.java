@@ -0,0 +1,125 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+
+/**
+ * Holds and turns the robot's heading along a trapezoid motion profile. The profile is planned
+ * online from wherever the robot is, so a new goal or the end of manual rotation never makes the
+ * setpoint jump. The profile's velocity is fed forward and the gyro's yaw rate is used for damping,
+ * so the robot stops on the goal instead of swinging past it.
+ *
+ * <p>All angles are in the frame of the chassis speeds, where positive omega increases the heading.
+ */
+public class HeadingController {
+
+  /** Calls further apart than this restart the profile from the measured heading (Seconds). */
+  private static final double RESET_TIME = 0.25;
+
+  private double goal = 0.0;
+  private double position = 0.0;
+  private double velocity = 0.0;
+
+  /** Restart the profile from the measured heading and rate on the next call. */
+  private boolean reset = true;
+  /** Use the measured heading as the goal on the next restart. */
+  private boolean holdCurrent = true;
+  /** Whether the robot was being turned by hand on the last call. */
+  private boolean manual = false;
+
+  private double lastTime = Double.NaN;
+
+  /**
+   * Turn to and hold a heading.
+   *
+   * @param heading Goal heading (Radians).
+   */
+  public void snapTo(double heading) {
+    goal = heading;
+    reset = true;
+    holdCurrent = false;
+  }
+
+  /** Hold whatever heading the robot is at. */
+  public void holdCurrent() {
+    reset = true;
+    holdCurrent = true;
+  }
+
+  /** Returns the heading being held or turned to (Radians). */
+  public double getGoal() {
+    return goal;
+  }
+
+  /**
+   * Calculate the angular velocity to command.
+   *
+   * @param heading Measured heading (Radians).
+   * @param rate Measured yaw rate (Radians per Second).
+   * @param manualOmega Angular velocity asked for by the driver, or zero to hold heading (Radians
+   *     per Second).
+   * @return Angular velocity to command (Radians per Second).
+   */
+  public double calculate(double heading, double rate, double manualOmega) {
+    double time = Timer.getFPGATimestamp();
+    double dt = time - lastTime;
+    lastTime = time;
+
+    if (manualOmega != 0.0) {
+      manual = true;
+      return manualOmega;
+    }
+
+    if (!(dt <= RESET_TIME)) {
+      reset = true;
+      holdCurrent = true;
+    }
+
+    if (manual) {
+      // Let go of the stick: brake at the profile's acceleration and hold where the robot stops,
+      // rather than snapping back to where the turn ended.
+      manual = false;
+      reset = true;
+      holdCurrent = false;
+      goal = heading + rate * Math.abs(rate) / (2.0 * Constants.drive.heading.MAX_ACCEL);
+    }
+
+    if (reset) {
+      reset = false;
+      if (holdCurrent) goal = heading;
+      position = heading;
+      velocity = rate;
+    }
+
+    if (dt > 0.0 && dt <= RESET_TIME) step(dt);
+
+    double error = Math.IEEEremainder(position - heading, 2.0 * Math.PI);
+    // Settled on the goal: stop commanding so the modules do not buzz around the setpoint.
+    if (velocity == 0.0 && Math.abs(error) < Constants.drive.heading.TOLERANCE) return 0.0;
+
+    return velocity
+        + Constants.drive.heading.kP * error
+        + Constants.drive.heading.kD * (velocity - rate);
+  }
+
+  /** Advance the profile setpoint toward the goal. */
+  private void step(double dt) {
+    double maxAccel = Constants.drive.heading.MAX_ACCEL;
+    double distance = Math.IEEEremainder(goal - position, 2.0 * Math.PI);
+
+    // Fastest speed from which the robot can still stop on the goal, braking in whole steps of dt
+    // so the setpoint does not overshoot.
+    double braking = maxAccel * dt;
+    double stopping = braking * (Math.sqrt(0.25 + 2.0 * Math.abs(distance) / (braking * dt)) - 0.5);
+    double desired =
+        Math.copySign(Math.min(Constants.drive.heading.MAX_VELOCITY, stopping), distance);
+    velocity += Math.max(-braking, Math.min(braking, desired - velocity));
+    position += velocity * dt;
+
+    if (Math.abs(Math.IEEEremainder(goal - position, 2.0 * Math.PI)) < Math.abs(velocity * dt)
+        && Math.abs(velocity) <= braking) {
+      position = goal;
+      velocity = 0.0;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.wpilibj.geometry.Translation2d;
+
+/**
+ * Swerve drive kinematics on primitive values. Does the same math as {@link
+ * edu.wpi.first.wpilibj.kinematics.SwerveDriveKinematics} but writes into caller-owned objects so
+ * it can run every loop without allocating.
+ */
+public class Kinematics {
+
+  private final int count;
+  private final double[] moduleX;
+  private final double[] moduleY;
+
+  /** Rows of the pseudo-inverse used for forward kinematics, one entry per module component. */
+  private final double[] vxRow;
+  private final double[] vyRow;
+  private final double[] omegaRow;
+
+  /**
+   * Constructs a new Kinematics object.
+   *
+   * @param locations Positions of the modules relative to the center of the robot (Meters).
+   */
+  public Kinematics(Translation2d... locations) {
+    count = locations.length;
+    moduleX = new double[count];
+    moduleY = new double[count];
+    vxRow = new double[count * 2];
+    vyRow = new double[count * 2];
+    omegaRow = new double[count * 2];
+
+    // Each module contributes the rows [1, 0, -y] and [0, 1, x] to the inverse kinematics matrix A.
+    // Forward kinematics is the least squares solution (A^T A)^-1 A^T.
+    double sumX = 0.0;
+    double sumY = 0.0;
+    double sumSq = 0.0;
+    for (int i = 0; i < count; i++) {
+      moduleX[i] = locations[i].getX();
+      moduleY[i] = locations[i].getY();
+      sumX += moduleX[i];
+      sumY += moduleY[i];
+      sumSq += moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i];
+    }
+
+    double[] inverse = invert3x3(count, 0.0, -sumY, 0.0, count, sumX, -sumY, sumX, sumSq);
+
+    for (int i = 0; i < count; i++) {
+      for (int r = 0; r < 3; r++) {
+        double[] row = r == 0 ? vxRow : r == 1 ? vyRow : omegaRow;
+        row[i * 2] = inverse[r * 3] - inverse[r * 3 + 2] * moduleY[i];
+        row[i * 2 + 1] = inverse[r * 3 + 1] + inverse[r * 3 + 2] * moduleX[i];
+      }
+    }
+  }
+
+  /** Returns the number of modules. */
+  public int getModuleCount() {
+    return count;
+  }
+
+  /** Returns the X position of a module relative to the center of the robot (Meters). */
+  public double getModuleX(int module) {
+    return moduleX[module];
+  }
+
+  /** Returns the Y position of a module relative to the center of the robot (Meters). */
+  public double getModuleY(int module) {
+    return moduleY[module];
+  }
+
+  /**
+   * Convert robot relative chassis speeds into module states.
+   *
+   * @param vx Velocity along the robot's X axis (Meters per Second).
+   * @param vy Velocity along the robot's Y axis (Meters per Second).
+   * @param omega Angular velocity (Radians per Second).
+   * @param states Array to receive the state of each module.
+   */
+  public void toModuleStates(double vx, double vy, double omega, ModuleState[] states) {
+    for (int i = 0; i < count; i++) {
+      double x = vx - omega * moduleY[i];
+      double y = vy + omega * moduleX[i];
+
+      states[i].speedMetersPerSecond = Math.hypot(x, y);
+      // A stopped module keeps its last angle rather than snapping back to zero.
+      if (x != 0.0 || y != 0.0) states[i].angleDegrees = Math.toDegrees(Math.atan2(y, x));
+    }
+  }
+
+  /**
+   * Convert module states into robot relative chassis speeds.
+   *
+   * @param states State of each module.
+   * @param speeds Array of at least three elements to receive {vx, vy, omega} in meters per second
+   *     and radians per second.
+   */
+  public void toChassisSpeeds(ModuleState[] states, double[] speeds) {
+    double vx = 0.0;
+    double vy = 0.0;
+    double omega = 0.0;
+
+    for (int i = 0; i < count; i++) {
+      double angle = Math.toRadians(states[i].angleDegrees);
+      double x = states[i].speedMetersPerSecond * Math.cos(angle);
+      double y = states[i].speedMetersPerSecond * Math.sin(angle);
+
+      vx += vxRow[i * 2] * x + vxRow[i * 2 + 1] * y;
+      vy += vyRow[i * 2] * x + vyRow[i * 2 + 1] * y;
+      omega += omegaRow[i * 2] * x + omegaRow[i * 2 + 1] * y;
+    }
+
+    speeds[0] = vx;
+    speeds[1] = vy;
+    speeds[2] = omega;
+  }
+
+  /**
+   * Convert module states into robot relative chassis speeds, trusting some modules less than
+   * others. Solves the same least squares problem as {@link #toChassisSpeeds(ModuleState[],
+   * double[])} with each module's residual scaled by its weight.
+   *
+   * @param states State of each module.
+   * @param weights Weight of each module, from 0 (ignore) to 1.
+   * @param speeds Array of at least three elements to receive {vx, vy, omega} in meters per second
+   *     and radians per second.
+   */
+  public void toChassisSpeeds(ModuleState[] states, double[] weights, double[] speeds) {
+    // Weighted normal equations (A^T W A) v = A^T W b, with the same rows as the constructor.
+    double sw = 0.0;
+    double swx = 0.0;
+    double swy = 0.0;
+    double swSq = 0.0;
+    double bx = 0.0;
+    double by = 0.0;
+    double bOmega = 0.0;
+
+    for (int i = 0; i < count; i++) {
+      double w = weights[i];
+      double angle = Math.toRadians(states[i].angleDegrees);
+      double x = states[i].speedMetersPerSecond * Math.cos(angle);
+      double y = states[i].speedMetersPerSecond * Math.sin(angle);
+
+      sw += w;
+      swx += w * moduleX[i];
+      swy += w * moduleY[i];
+      swSq += w * (moduleX[i] * moduleX[i] + moduleY[i] * moduleY[i]);
+      bx += w * x;
+      by += w * y;
+      bOmega += w * (moduleX[i] * y - moduleY[i] * x);
+    }
+
+    // The matrix is [[sw, 0, -swy], [0, sw, swx], [-swy, swx, swSq]]; invert it by its adjugate.
+    double det = sw * (sw * swSq - swx * swx - swy * swy);
+    if (Math.abs(det) < 1e-9) {
+      // Too few trusted modules to pin down all three speeds.
+      toChassisSpeeds(states, speeds);
+      return;
+    }
+
+    speeds[0] = ((sw * swSq - swx * swx) * bx - swx * swy * by + sw * swy * bOmega) / det;
+    speeds[1] = (-swx * swy * bx + (sw * swSq - swy * swy) * by - sw * swx * bOmega) / det;
+    speeds[2] = (sw * swy * bx - sw * swx * by + sw * sw * bOmega) / det;
+  }
+
+  /**
+   * Correct chassis speeds for being held constant over a whole loop. Translating and rotating at
+   * the same time for one period actually traces an arc, so the robot drifts toward the direction
+   * it is turning. This finds the constant speeds whose arc ends at the pose the caller intended to
+   * reach after one period (the pose logarithm of that pose, divided by the period).
+   *
+   * @param vx Velocity along the robot's X axis (Meters per Second).
+   * @param vy Velocity along the robot's Y axis (Meters per Second).
+   * @param omega Angular velocity (Radians per Second).
+   * @param dt Period the speeds will be held for (Seconds).
+   * @param speeds Array of at least three elements to receive the corrected {vx, vy, omega}.
+   */
+  public static void discretize(double vx, double vy, double omega, double dt, double[] speeds) {
+    double dTheta = omega * dt;
+    double halfTheta = 0.5 * dTheta;
+    double cosMinusOne = Math.cos(dTheta) - 1.0;
+
+    double halfThetaByTanHalf;
+    if (Math.abs(cosMinusOne) < 1e-9) {
+      halfThetaByTanHalf = 1.0 - dTheta * dTheta / 12.0;
+    } else {
+      halfThetaByTanHalf = -(halfTheta * Math.sin(dTheta)) / cosMinusOne;
+    }
+
+    speeds[0] = vx * halfThetaByTanHalf + vy * halfTheta;
+    speeds[1] = -vx * halfTheta + vy * halfThetaByTanHalf;
+    speeds[2] = omega;
+  }
+
+  /**
+   * Scale all module speeds down so that none exceed the maximum, keeping their ratios.
+   *
+   * @param states Module states to normalize in place.
+   * @param maxSpeed Maximum wheel speed (Meters per Second).
+   */
+  public static void normalize(ModuleState[] states, double maxSpeed) {
+    double fastest = 0.0;
+    for (ModuleState state : states) {
+      fastest = Math.max(fastest, Math.abs(state.speedMetersPerSecond));
+    }
+
+    if (fastest > maxSpeed) {
+      for (ModuleState state : states) state.speedMetersPerSecond *= maxSpeed / fastest;
+    }
+  }
+
+  /** Inverts a row-major 3x3 matrix using its adjugate. */
+  private static double[] invert3x3(
+      double a, double b, double c, double d, double e, double f, double g, double h, double i) {
+    double det = a * (e * i - f * h) - b * (d * i - f * g) + c * (d * h - e * g);
+
+    return new double[] {
+      (e * i - f * h) / det,
+      (c * h - b * i) / det,
+      (b * f - c * e) / det,
+      (f * g - d * i) / det,
+      (a * i - c * g) / det,
+      (c * d - a * f) / det,
+      (d * h - e * g) / det,
+      (b * g - a * h) / det,
+      (a * e - b * d) / det
+    };
+  }
+}
@@ -1,13 +1,19 @@
 package frc.robot.subsystems.drive;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.RemoteSensorSource;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.TalonFXFeedbackDevice;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
 import com.ctre.phoenix.sensors.AbsoluteSensorRange;
 import com.ctre.phoenix.sensors.CANCoder;
+import com.ctre.phoenix.sensors.CANCoderStatusFrame;
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.controller.PIDController;
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.kinematics.SwerveModuleState;
 import frc.robot.Constants;
@@ -21,12 +27,27 @@ public class Module {
   private WPI_TalonFX angleMotor = null;
   private CANCoder encoder = null;
 
+  /** Physics model standing in for the motors and CANCoder in simulation, otherwise null. */
+  private final ModuleSim sim = Robot.isSimulation() ? new ModuleSim() : null;
+
+  private double sampledAngle = 0.0;
+  private double sampledVelocity = 0.0;
+  private double sampledPosition = 0.0;
+  /** Position of the CANCoder as seen by the angle motor's remote sensor (Raw Units). */
+  private double sampledAnglePosition = 0.0;
+
   private PIDController anglePID =
       new PIDController(
           Constants.drive.anglemotor.kP,
           Constants.drive.anglemotor.kI,
           Constants.drive.anglemotor.kD);
 
+  private SimpleMotorFeedforward feedforward =
+      new SimpleMotorFeedforward(
+          Constants.drive.speedmotor.kS,
+          Constants.drive.speedmotor.kV,
+          Constants.drive.speedmotor.kA);
+
   /**
    * Constructs a new Module object. Controls the velocity and angle of swerve wheels.
    *
@@ -49,6 +70,13 @@ public class Module {
     speedMotor.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
     speedMotor.setSelectedSensorPosition(0);
     speedMotor.setInverted(true);
+    // Compensate to a fixed voltage so the volts of feedforward hold as the battery sags.
+    speedMotor.configVoltageCompSaturation(Constants.drive.MAX_VOLTS, 10);
+    speedMotor.enableVoltageCompensation(true);
+    // Report position as often as the odometry thread samples it.
+    speedMotor.setStatusFramePeriod(
+        StatusFrameEnhanced.Status_2_Feedback0,
+        (int) (Constants.drive.ODOMETRY_PERIOD * 1000.0));
 
     angleMotor.configFactoryDefault();
     angleMotor.setNeutralMode(NeutralMode.Brake);
@@ -61,59 +89,194 @@ public class Module {
     encoder.setPosition(0.0);
     encoder.configSensorDirection(false);
     encoder.configMagnetOffset(encoderZero);
+    encoder.setStatusFramePeriod(
+        CANCoderStatusFrame.SensorData, (int) (Constants.drive.ODOMETRY_PERIOD * 1000.0));
+
+    if (Constants.drive.anglemotor.ON_CONTROLLER) {
+      // Start the relative position at the absolute angle so the Talon's view of the CANCoder
+      // matches the absolute reading we compute setpoints from.
+      encoder.setPositionToAbsolute(10);
+
+      angleMotor.configRemoteFeedbackFilter(encoderID, RemoteSensorSource.CANCoder, 0, 10);
+      angleMotor.configSelectedFeedbackSensor(TalonFXFeedbackDevice.RemoteSensor0, 0, 10);
+      // The angle motor turns against the CANCoder (hence the negative roboRIO kP), so invert it
+      // to let positive output increase the sensor.
+      angleMotor.setInverted(true);
+      angleMotor.config_kP(0, Constants.drive.anglemotor.TALON_kP, 10);
+      angleMotor.config_kI(0, Constants.drive.anglemotor.TALON_kI, 10);
+      angleMotor.config_kD(0, Constants.drive.anglemotor.TALON_kD, 10);
+      angleMotor.config_kF(0, Constants.drive.anglemotor.TALON_kF, 10);
+      angleMotor.configMotionCruiseVelocity(Constants.drive.anglemotor.CRUISE_VELOCITY, 10);
+      angleMotor.configMotionAcceleration(Constants.drive.anglemotor.ACCELERATION, 10);
+      angleMotor.configVoltageCompSaturation(Constants.drive.MAX_VOLTS, 10);
+      angleMotor.enableVoltageCompensation(true);
+    }
 
     MusicPlayer.getInstance().addMotor(speedMotor);
     MusicPlayer.getInstance().addMotor(angleMotor);
+
+    sample();
+  }
+
+  /**
+   * Read the CANCoder angle and the drive motor's velocity and position once, and hold them until
+   * the next call. Every getter returns the values from the latest sample, so control, odometry and
+   * telemetry all see the same measurement within a cycle. Call this once per control cycle.
+   */
+  public void sample() {
+    if (sim != null) {
+      synchronized (this) {
+        sampledAngle = sim.getAngle();
+        sampledVelocity = sim.getDriveVelocity();
+        sampledPosition = sim.getDrivePosition();
+      }
+      return;
+    }
+
+    double angle = encoder.getAbsolutePosition();
+    double velocity =
+        ((double) speedMotor.getSelectedSensorVelocity() * 10.0)
+            / Constants.drive.DRIVE_COUNTS_PER_METER;
+    double position =
+        speedMotor.getSelectedSensorPosition() / Constants.drive.DRIVE_COUNTS_PER_METER;
+    double anglePosition =
+        Constants.drive.anglemotor.ON_CONTROLLER ? angleMotor.getSelectedSensorPosition() : 0.0;
+
+    synchronized (this) {
+      sampledAngle = angle;
+      sampledVelocity = velocity;
+      sampledPosition = position;
+      sampledAnglePosition = anglePosition;
+    }
   }
 
   /**
    * Returns the measured angle of the angle motor.
    *
-   * @return Measured angle.
+   * @return Measured angle from the latest {@link #sample()}.
    */
-  public double getAbsoluteAngle() {
-    return encoder.getAbsolutePosition();
+  public synchronized double getAbsoluteAngle() {
+    return sampledAngle;
   }
 
   /**
    * Returns the measured meters per second velocity of the speed motor.
    *
-   * @return Measured meters per second.
+   * @return Measured meters per second from the latest {@link #sample()}.
    */
-  public double getVelocity() {
-    return ((double) speedMotor.getSelectedSensorVelocity() * 10.0)
-        / Constants.drive.DRIVE_COUNTS_PER_METER;
+  public synchronized double getVelocity() {
+    return sampledVelocity;
   }
 
-  double lastAngle = 0.0;
   /**
-   * Set the angle and velocity of the swerve module.
+   * Returns the measured distance traveled by the speed motor since it was zeroed.
+   *
+   * @return Measured meters from the latest {@link #sample()}.
+   */
+  public synchronized double getPosition() {
+    return sampledPosition;
+  }
+
+  private final ModuleState commandState = new ModuleState();
+  private final ModuleState optimizedState = new ModuleState();
+
+  /**
+   * Set the angle and velocity of the swerve module. The module turns the shortest way to the
+   * requested direction, and drives slower while it is still pointing away from it.
    *
    * @param state State object containing desired module bahaviour.
    */
-  public void setModuleState(SwerveModuleState state) {
-    double velMultiplier = -1.0;
-    double setAngle = state.angle.getDegrees();
+  public void setModuleState(ModuleState state) {
+    double angle;
+    double anglePosition;
+    synchronized (this) {
+      angle = sampledAngle;
+      anglePosition = sampledAnglePosition;
+    }
 
-    if (Math.abs(lastAngle - state.angle.getDegrees()) > 90) {
-      setAngle = (state.angle.getDegrees() + 360) % 360 - 180;
-      velMultiplier *= -1.0;
+    optimizedState.set(
+        state.speedMetersPerSecond, state.angleDegrees, state.accelerationMetersPerSecondSq);
+    optimizedState.optimize(angle);
+
+    // The speed motor is driven opposite the module state, so the feedforward is too.
+    double feedforwardVolts =
+        feedforward.calculate(
+            -optimizedState.speedMetersPerSecond, -optimizedState.accelerationMetersPerSecondSq);
+
+    if (sim != null) {
+      sim.setDriveVelocity(-optimizedState.speedMetersPerSecond, feedforwardVolts);
+      sim.setAngle(optimizedState.angleDegrees);
+      return;
     }
 
     speedMotor.set(
         ControlMode.Velocity,
-        velMultiplier
-            * (state.speedMetersPerSecond * (Constants.drive.DRIVE_COUNTS_PER_METER / 10.0)));
-    angleMotor.set(Robot.normalizePercentVolts(anglePID.calculate(getAbsoluteAngle(), setAngle)));
+        -optimizedState.speedMetersPerSecond * (Constants.drive.DRIVE_COUNTS_PER_METER / 10.0),
+        DemandType.ArbitraryFeedForward,
+        feedforwardVolts / Constants.drive.MAX_VOLTS);
+    setAngle(optimizedState.angleDegrees, angle, anglePosition);
+  }
 
-    lastAngle = getAbsoluteAngle();
+  /**
+   * Apply a fixed voltage to the speed motor, without closed loop control, while holding the module
+   * at an angle. Used to characterize the drivetrain.
+   *
+   * @param volts Voltage to apply; positive drives the module the same way as a positive speed.
+   * @param angleDegrees Angle to hold the module at (Degrees).
+   */
+  public void setDriveVoltage(double volts, double angleDegrees) {
+    double angle;
+    double anglePosition;
+    synchronized (this) {
+      angle = sampledAngle;
+      anglePosition = sampledAnglePosition;
+    }
+
+    if (sim != null) {
+      sim.setDriveVoltage(-volts);
+      sim.setAngle(angleDegrees);
+      return;
+    }
+
+    speedMotor.set(ControlMode.PercentOutput, -volts / Constants.drive.MAX_VOLTS);
+    setAngle(angleDegrees, angle, anglePosition);
+  }
+
+  private void setAngle(double setAngle, double angle, double anglePosition) {
+    if (Constants.drive.anglemotor.ON_CONTROLLER) {
+      // Motion Magic works on the continuous sensor position, so aim for the setpoint closest to
+      // where the module is rather than wrapping through +-180.
+      double error = Math.IEEEremainder(setAngle - angle, 360.0);
+      angleMotor.set(
+          ControlMode.MotionMagic,
+          anglePosition + error * (Constants.robot.CANCODER_TICKS / 360.0));
+    } else {
+      angleMotor.set(Robot.normalizePercentVolts(anglePID.calculate(angle, setAngle)));
+    }
+  }
+
+  /**
+   * Set the angle and velocity of the swerve module.
+   *
+   * @param state State object containing desired module bahaviour.
+   */
+  public void setModuleState(SwerveModuleState state) {
+    commandState.set(state.speedMetersPerSecond, state.angle.getDegrees(), 0.0);
+    setModuleState(commandState);
   }
 
   public void stop() {
+    if (sim != null) sim.setDriveVoltage(0.0);
+
     speedMotor.set(0.0);
     angleMotor.set(0.0);
   }
 
+  /** Returns the physics model of this module, or null when running on the robot. */
+  ModuleSim getSim() {
+    return sim;
+  }
+
   /**
    * Get the angle and velocity of the swerve module.
    *
@@ -123,6 +286,15 @@ public class Module {
     return new SwerveModuleState(getVelocity(), Rotation2d.fromDegrees(getAbsoluteAngle()));
   }
 
+  /**
+   * Get the angle and velocity of the swerve module without allocating.
+   *
+   * @param state State object to overwrite with the current module state.
+   */
+  public synchronized void getModuleState(ModuleState state) {
+    state.set(sampledVelocity, sampledAngle);
+  }
+
   /**
    * The temperature of the speed motor.
    *
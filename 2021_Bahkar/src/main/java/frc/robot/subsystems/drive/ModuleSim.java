@@ -0,0 +1,143 @@
+package frc.robot.subsystems.drive;
+
+import frc.robot.Constants;
+
+/**
+ * Physics model of one swerve module for desktop simulation. The drive and azimuth motors are each
+ * modeled as a Falcon 500 (a DC motor with winding resistance and back-EMF) through their gearing,
+ * and the closed loops that run on the Talons are run here at the same rate.
+ *
+ * <p>Drive values are in the motor's frame, which is reversed from the module state, so {@link
+ * Module} sees the same signs it does on the robot.
+ */
+public class ModuleSim {
+
+  /** Rate the Talons run their closed loops at (Seconds). */
+  static final double TALON_PERIOD = 0.001;
+
+  /** Winding resistance of a Falcon 500 (Ohms). */
+  private static final double RESISTANCE =
+      Constants.drive.MAX_VOLTS / Constants.robot.FALCON_STALL_CURRENT;
+  /** Torque per amp of a Falcon 500 (Newton Meters per Amp). */
+  private static final double KT =
+      Constants.robot.FALCON_STALL_TORQUE / Constants.robot.FALCON_STALL_CURRENT;
+  /** Speed per back-EMF volt of a Falcon 500 (Radians per Second per Volt). */
+  private static final double KV =
+      (Constants.robot.FALCON_MAX_VEL * 2.0 * Math.PI / 60.0)
+          / (Constants.drive.MAX_VOLTS - Constants.robot.FALCON_FREE_CURRENT * RESISTANCE);
+
+  private static final double WHEEL_RADIUS = Constants.drive.WHEEL_DIAMETER / 2.0;
+
+  private double driveSetpoint = Double.NaN;
+  private double driveFeedforward = 0.0;
+  private double driveVelocity = 0.0;
+  private double drivePosition = 0.0;
+
+  private double azimuthSetpoint = 0.0;
+  private double azimuth = 0.0;
+  private double azimuthVelocity = 0.0;
+
+  /**
+   * Run the drive motor's velocity loop, like {@code ControlMode.Velocity} with an arbitrary
+   * feedforward.
+   *
+   * @param velocity Wheel velocity setpoint in the motor's frame (Meters per Second).
+   * @param feedforwardVolts Voltage added to the loop's output.
+   */
+  public synchronized void setDriveVelocity(double velocity, double feedforwardVolts) {
+    driveSetpoint = velocity;
+    driveFeedforward = feedforwardVolts;
+  }
+
+  /**
+   * Apply a fixed voltage to the drive motor.
+   *
+   * @param volts Voltage in the motor's frame.
+   */
+  public synchronized void setDriveVoltage(double volts) {
+    driveSetpoint = Double.NaN;
+    driveFeedforward = volts;
+  }
+
+  /**
+   * Turn the module to an angle.
+   *
+   * @param degrees Angle of the module (Degrees).
+   */
+  public synchronized void setAngle(double degrees) {
+    azimuthSetpoint = degrees;
+  }
+
+  /**
+   * Returns the force the drive motor pushes the wheel with, in the motor's frame, for the voltage
+   * its loop outputs at the current speed.
+   *
+   * @return Force at the carpet (Newtons).
+   */
+  synchronized double getDriveForce() {
+    double volts = driveFeedforward;
+    if (!Double.isNaN(driveSetpoint)) {
+      // Talon kP is in units of 1023 output per raw velocity unit (counts per 100ms).
+      double error =
+          (driveSetpoint - driveVelocity) * (Constants.drive.DRIVE_COUNTS_PER_METER / 10.0);
+      volts += Constants.drive.speedmotor.kP * error / 1023.0 * Constants.drive.MAX_VOLTS;
+    }
+    volts = clamp(volts, Constants.drive.MAX_VOLTS);
+
+    double motorSpeed = driveVelocity / WHEEL_RADIUS * Constants.drive.DRIVE_GEARING;
+    double torque = KT * (volts - motorSpeed / KV) / RESISTANCE;
+    return torque * Constants.drive.DRIVE_GEARING / WHEEL_RADIUS;
+  }
+
+  /**
+   * Advance the azimuth by one Talon period and set the drive wheel to the speed of the ground
+   * under it.
+   *
+   * @param groundVelocity Speed of the carpet along the wheel, in the motor's frame (Meters per
+   *     Second).
+   * @param dt Time step (Seconds).
+   */
+  synchronized void update(double groundVelocity, double dt) {
+    driveVelocity = groundVelocity;
+    drivePosition += groundVelocity * dt;
+
+    // Stand-in for Motion Magic: a PD loop on the shortest way to the setpoint.
+    double error = Math.IEEEremainder(azimuthSetpoint - azimuth, 360.0);
+    double volts =
+        clamp(
+            Constants.drive.sim.AZIMUTH_kP * error
+                - Constants.drive.sim.AZIMUTH_kD * azimuthVelocity,
+            Constants.drive.MAX_VOLTS);
+
+    // The azimuth motor is stiff enough to need the exact solution of its first order response
+    // rather than a forward Euler step.
+    double gearing = Constants.drive.ANGLE_GEARING;
+    double timeConstant =
+        Constants.drive.sim.AZIMUTH_INERTIA * RESISTANCE * KV / (KT * gearing * gearing);
+    double steadySpeed = Math.toDegrees(volts * KV / gearing);
+    double decay = Math.exp(-dt / timeConstant);
+    double next = steadySpeed + (azimuthVelocity - steadySpeed) * decay;
+
+    azimuth = Math.IEEEremainder(azimuth + 0.5 * (azimuthVelocity + next) * dt, 360.0);
+    azimuthVelocity = next;
+  }
+
+  /** Returns the drive wheel velocity in the motor's frame (Meters per Second). */
+  public synchronized double getDriveVelocity() {
+    return driveVelocity;
+  }
+
+  /** Returns the distance rolled by the drive wheel in the motor's frame (Meters). */
+  public synchronized double getDrivePosition() {
+    return drivePosition;
+  }
+
+  /** Returns the angle of the module (Degrees). */
+  public synchronized double getAngle() {
+    return azimuth;
+  }
+
+  private static double clamp(double value, double limit) {
+    return Math.max(-limit, Math.min(limit, value));
+  }
+}
@@ -0,0 +1,72 @@
+package frc.robot.subsystems.drive;
+
+/**
+ * Mutable speed and angle of a single swerve module. Unlike {@link
+ * edu.wpi.first.wpilibj.kinematics.SwerveModuleState}, instances are meant to be allocated once and
+ * overwritten every loop.
+ */
+public class ModuleState {
+
+  /** Speed of the wheel (Meters per Second). */
+  public double speedMetersPerSecond;
+  /** Angle of the wheel (Degrees). */
+  public double angleDegrees;
+  /** Acceleration of the wheel, used for feedforward (Meters per Second Squared). */
+  public double accelerationMetersPerSecondSq;
+
+  /** Constructs a new stopped ModuleState pointing forward. */
+  public ModuleState() {}
+
+  /**
+   * Overwrite this state.
+   *
+   * @param speedMetersPerSecond Speed of the wheel (Meters per Second).
+   * @param angleDegrees Angle of the wheel (Degrees).
+   */
+  public void set(double speedMetersPerSecond, double angleDegrees) {
+    set(speedMetersPerSecond, angleDegrees, 0.0);
+  }
+
+  /**
+   * Overwrite this state.
+   *
+   * @param speedMetersPerSecond Speed of the wheel (Meters per Second).
+   * @param angleDegrees Angle of the wheel (Degrees).
+   * @param accelerationMetersPerSecondSq Acceleration of the wheel (Meters per Second Squared).
+   */
+  public void set(
+      double speedMetersPerSecond, double angleDegrees, double accelerationMetersPerSecondSq) {
+    this.speedMetersPerSecond = speedMetersPerSecond;
+    this.angleDegrees = angleDegrees;
+    this.accelerationMetersPerSecondSq = accelerationMetersPerSecondSq;
+  }
+
+  /**
+   * Rewrite this state so the module reaches it with the least rotation. If the target is more than
+   * 90 degrees away the wheel aims for the opposite direction and drives backwards instead. The
+   * speed is then scaled by the cosine of the remaining angle error, so a wheel that is still
+   * turning only pushes along the direction it actually points.
+   *
+   * @param currentAngleDegrees Measured angle of the module (Degrees).
+   */
+  public void optimize(double currentAngleDegrees) {
+    double error = Math.IEEEremainder(angleDegrees - currentAngleDegrees, 360.0);
+
+    if (Math.abs(error) > 90.0) {
+      error -= Math.copySign(180.0, error);
+      speedMetersPerSecond = -speedMetersPerSecond;
+      accelerationMetersPerSecondSq = -accelerationMetersPerSecondSq;
+    }
+
+    double scale = Math.cos(Math.toRadians(error));
+    angleDegrees = Math.IEEEremainder(currentAngleDegrees + error, 360.0);
+    speedMetersPerSecond *= scale;
+    accelerationMetersPerSecondSq *= scale;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "ModuleState(Speed: %.2f m/s, Angle: %.2f)", speedMetersPerSecond, angleDegrees);
+  }
+}
@@ -1,12 +1,18 @@
 package frc.robot.subsystems.drive;
 
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import frc.robot.math.Integral;
+import frc.robot.Constants;
 
-/** Class to track field position using distance traveled and heading. */
+/**
+ * Class to track field position using distance traveled and heading, corrected by vision. Each
+ * update is treated as a constant-curvature arc in the robot frame and integrated onto the
+ * field-frame pose with the pose exponential, so driving while rotating does not smear the
+ * position. Field positions from the Limelight are fused in by a {@link PoseEstimator}.
+ */
 public class Odometry {
   private static Odometry instance = null;
 
@@ -18,9 +24,15 @@ public class Odometry {
   // private SwerveDriveOdometry odometry = new SwerveDriveOdometry(Constants.drive.KINEMATICS, new
   // Rotation2d());
 
-  private Integral xPos = new Integral(0.0);
-  private Integral yPos = new Integral(0.0);
-  private Rotation2d heading = new Rotation2d();
+  private final PoseHistory history =
+      new PoseHistory(
+          (int) Math.ceil(Constants.drive.POSE_HISTORY_LENGTH / Constants.drive.ODOMETRY_PERIOD));
+
+  private final PoseEstimator estimator = new PoseEstimator(history);
+  private final double[] pose = new double[3];
+
+  /** FPGA time of the last update (Microseconds). */
+  private long lastTimestamp = RobotController.getFPGATime();
 
   /**
    * Constructs a new CSPOdometry object.
@@ -30,29 +42,122 @@ public class Odometry {
   public Odometry() {}
 
   /**
-   * Update the odometry's estimated position.
+   * Update the odometry's estimated position from the distance traveled since the last update.
+   *
+   * @param gyro Rotation of the robot as recorded by the gyro.
+   * @param dx Distance traveled along the robot's X axis since the last update (Meters).
+   * @param dy Distance traveled along the robot's Y axis since the last update (Meters).
+   * @param timestamp FPGA time the distance was sampled at (Microseconds).
+   */
+  public void update(Rotation2d gyro, double dx, double dy, long timestamp) {
+    update(gyro.getRadians(), dx, dy, timestamp);
+  }
+
+  /**
+   * Update the odometry's estimated position from the distance traveled since the last update,
+   * without allocating.
+   *
+   * @param gyro Heading of the robot as recorded by the gyro (Radians).
+   * @param dx Distance traveled along the robot's X axis since the last update (Meters).
+   * @param dy Distance traveled along the robot's Y axis since the last update (Meters).
+   * @param timestamp FPGA time the distance was sampled at (Microseconds).
+   */
+  public synchronized void update(double gyro, double dx, double dy, long timestamp) {
+    estimator.predict(gyro, dx, dy, timestamp / 1e6);
+    lastTimestamp = timestamp;
+  }
+
+  /**
+   * Update the odometry's estimated position from a velocity measured now.
    *
    * @param gyro Rotation of the robot as recorded by the gyro.
-   * @param speeds ChassisSpeeds of the robot.
+   * @param speeds Robot relative ChassisSpeeds of the robot.
+   */
+  public synchronized void update(Rotation2d gyro, ChassisSpeeds speeds) {
+    long timestamp = RobotController.getFPGATime();
+    double dt = (timestamp - lastTimestamp) / 1e6;
+
+    update(gyro, speeds.vxMetersPerSecond * dt, speeds.vyMetersPerSecond * dt, timestamp);
+  }
+
+  /**
+   * Correct the position with one seen by vision. Measurements are trusted less the farther the
+   * target is, and ones that disagree wildly with odometry are ignored.
+   *
+   * @param vision Field position of the robot seen by vision; its rotation is not used.
+   * @param timestamp FPGA time the camera frame was captured at (Seconds).
+   * @param distance Distance to the vision target (Meters).
+   * @return False if the measurement was rejected.
+   */
+  public boolean addVisionMeasurement(Pose2d vision, double timestamp, double distance) {
+    return addVisionMeasurement(vision.getX(), vision.getY(), timestamp, distance);
+  }
+
+  /**
+   * Correct the position with one seen by vision, without allocating.
+   *
+   * @param x Field X position of the robot seen by vision (Meters).
+   * @param y Field Y position of the robot seen by vision (Meters).
+   * @param timestamp FPGA time the camera frame was captured at (Seconds).
+   * @param distance Distance to the vision target (Meters).
+   * @return False if the measurement was rejected.
    */
-  public void update(Rotation2d gyro, ChassisSpeeds speeds) {
+  public boolean addVisionMeasurement(double x, double y, double timestamp, double distance) {
+    double std =
+        Constants.drive.estimator.VISION_STD
+            + Constants.drive.estimator.VISION_STD_PER_METER_SQ * distance * distance;
+    return estimator.correct(x, y, std, timestamp);
+  }
+
+  /** Publish the current position to the dashboard. */
+  public void updateShuffleboard() {
+    Pose2d pose = getPose();
+
+    SmartDashboard.putString("Odometry", pose.toString());
+    SmartDashboard.putNumber("Rotation", pose.getRotation().getDegrees());
+    SmartDashboard.putNumber("Pose Uncertainty", estimator.getPositionStd());
+  }
+
+  /** Returns the estimated position of the robot and its heading. */
+  public synchronized Pose2d getPose() {
+    estimator.getPose(pose);
+    return new Pose2d(pose[0], pose[1], new Rotation2d(pose[2]));
+  }
 
-    xPos.sample(speeds.vxMetersPerSecond);
-    yPos.sample(speeds.vyMetersPerSecond);
-    heading = gyro;
+  /**
+   * Get the estimated position of the robot and its heading without allocating.
+   *
+   * @param out Array of at least three elements to receive {x, y, heading} in meters and radians.
+   */
+  public void getPose(double[] out) {
+    estimator.getPose(out);
+  }
 
-    SmartDashboard.putString("Odometry", getPose().toString());
-    SmartDashboard.putNumber("Rotation", getPose().getRotation().getDegrees());
+  /**
+   * Returns the estimated position of the robot at a time in the recent past, for use with
+   * measurements that arrive late.
+   *
+   * @param timestamp FPGA time to look up (Seconds).
+   * @return Interpolated pose, or the current pose if nothing has been recorded.
+   */
+  public Pose2d getPoseAt(double timestamp) {
+    Pose2d past = history.getPoseAt(timestamp);
+    return past != null ? past : getPose();
   }
 
-  /** Returns the integrated position of the robot and its heading. */
-  public Pose2d getPose() {
-    return new Pose2d(xPos.getValue(), yPos.getValue(), heading);
+  /**
+   * Get the estimated position of the robot at a time in the recent past without allocating.
+   *
+   * @param timestamp FPGA time to look up (Seconds).
+   * @param out Array of at least three elements to receive {x, y, heading} in meters and radians;
+   *     the current pose if nothing has been recorded.
+   */
+  public void getPoseAt(double timestamp, double[] out) {
+    if (!history.getPoseAt(timestamp, out)) estimator.getPose(out);
   }
 
-  /** Set a new position for the robot. */
-  public void setPose(Pose2d pose) {
-    xPos = new Integral(pose.getX());
-    yPos = new Integral(pose.getY());
+  /** Set a new position for the robot. The heading continues to come from the gyro. */
+  public synchronized void setPose(Pose2d pose) {
+    estimator.reset(pose.getX(), pose.getY());
   }
 }
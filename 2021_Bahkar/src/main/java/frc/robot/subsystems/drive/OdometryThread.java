@@ -0,0 +1,103 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.Constants;
+import frc.robot.subsystems.sensors.Sensors;
+
+/**
+ * Samples the swerve modules and the gyro on its own thread, faster than the main robot loop, and
+ * feeds the distance each wheel has rolled since the last sample into {@link Odometry}. This is the
+ * only place the module sensors are read; everything else uses the snapshot it leaves in each
+ * {@link Module}. Wheels that {@link TractionControl} finds slipping count for less.
+ */
+public class OdometryThread {
+
+  private final Module[] modules;
+  private final Kinematics kinematics;
+  private final TractionControl traction;
+
+  private final Odometry odometry = Odometry.getInstance();
+  private final Sensors sensors = Sensors.getInstance();
+
+  private final Notifier notifier = new Notifier(() -> sample());
+
+  private final double[] lastPositions;
+  private final ModuleState[] deltas;
+  private final ModuleState[] velocities;
+  private final double[] weights;
+  private final double[] delta = new double[3];
+  private boolean seeded = false;
+  private volatile boolean running = false;
+
+  /**
+   * Constructs a new OdometryThread. The modules must be given in the same order as the kinematics
+   * object was constructed with.
+   *
+   * @param kinematics Kinematics of the drivetrain.
+   * @param traction Slip detection to update with each sample.
+   * @param modules Swerve modules to sample.
+   */
+  public OdometryThread(Kinematics kinematics, TractionControl traction, Module... modules) {
+    this.kinematics = kinematics;
+    this.traction = traction;
+    this.modules = modules;
+
+    lastPositions = new double[modules.length];
+    weights = new double[modules.length];
+    deltas = new ModuleState[modules.length];
+    velocities = new ModuleState[modules.length];
+    for (int i = 0; i < modules.length; i++) {
+      deltas[i] = new ModuleState();
+      velocities[i] = new ModuleState();
+    }
+  }
+
+  /** Begin sampling at {@link Constants.drive#ODOMETRY_PERIOD}. */
+  public void start() {
+    running = true;
+    notifier.startPeriodic(Constants.drive.ODOMETRY_PERIOD);
+  }
+
+  /** Stop sampling. */
+  public void stop() {
+    running = false;
+    notifier.stop();
+  }
+
+  /** Returns whether the thread is sampling the modules. */
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void sample() {
+    long timestamp = RobotController.getFPGATime();
+    double gyro = Math.toRadians(sensors.getRotationDegrees());
+    double gyroRate = Math.toRadians(sensors.getRotationRate());
+    if (Constants.drive.GYRO_INVERTED) gyroRate = -gyroRate;
+
+    for (int i = 0; i < modules.length; i++) {
+      modules[i].sample();
+      double position = modules[i].getPosition();
+
+      // Feed the wheel displacement through the kinematics as if it were a velocity over one
+      // second, which gives the chassis displacement since the last sample.
+      deltas[i].set(position - lastPositions[i], modules[i].getAbsoluteAngle());
+      lastPositions[i] = position;
+      modules[i].getModuleState(velocities[i]);
+    }
+
+    // Measured wheel speeds are reversed from the commanded ones, as is the rotation they imply.
+    traction.update(velocities, -gyroRate);
+
+    // The first sample only establishes the starting wheel positions.
+    if (!seeded) {
+      seeded = true;
+      return;
+    }
+
+    traction.getWeights(weights);
+    kinematics.toChassisSpeeds(deltas, weights, delta);
+    odometry.update(gyro, -delta[0], -delta[1], timestamp);
+  }
+}
@@ -0,0 +1,195 @@
+package frc.robot.subsystems.drive;
+
+import frc.robot.Constants;
+
+/**
+ * Extended Kalman filter on the robot's field position. Wheel odometry and the gyro drive the
+ * prediction, and field positions from vision correct it. Every correction is made against the
+ * estimate from when the camera frame was captured, not when it arrived, and the motion since then
+ * is kept.
+ *
+ * <p>Heading is taken from the gyro rather than estimated. The Limelight rides on the turret, so
+ * its pose does not say which way the chassis faces. Heading error still enters the filter, as
+ * uncertainty in which direction each step of wheel travel went.
+ *
+ * <p>Everything is kept in primitives so the odometry thread does not allocate.
+ */
+public class PoseEstimator {
+
+  private double x = 0.0;
+  private double y = 0.0;
+  /** Heading of the robot (Radians). */
+  private double heading = 0.0;
+
+  // Covariance of the position, which is symmetric (Meters Squared).
+  private double pxx;
+  private double pxy;
+  private double pyy;
+
+  private final PoseHistory history;
+  private final double[] past = new double[3];
+
+  /**
+   * Constructs a new PoseEstimator.
+   *
+   * @param history Buffer to record estimates in for looking up late measurements.
+   */
+  public PoseEstimator(PoseHistory history) {
+    this.history = history;
+    resetCovariance();
+  }
+
+  /**
+   * Advance the estimate by the distance traveled since the last prediction. The motion is treated
+   * as a constant-curvature arc in the robot frame and integrated with the pose exponential.
+   *
+   * @param gyro Heading of the robot as recorded by the gyro (Radians).
+   * @param dx Distance traveled along the robot's X axis (Meters).
+   * @param dy Distance traveled along the robot's Y axis (Meters).
+   * @param timestamp FPGA time the distance was sampled at (Seconds).
+   */
+  public synchronized void predict(double gyro, double dx, double dy, double timestamp) {
+    double dTheta = Math.IEEEremainder(gyro - heading, 2.0 * Math.PI);
+
+    double s;
+    double c;
+    if (Math.abs(dTheta) < 1e-9) {
+      s = 1.0 - dTheta * dTheta / 6.0;
+      c = 0.5 * dTheta;
+    } else {
+      s = Math.sin(dTheta) / dTheta;
+      c = (1.0 - Math.cos(dTheta)) / dTheta;
+    }
+
+    // Displacement along the arc, still in the frame the robot started the update in.
+    double arcX = dx * s - dy * c;
+    double arcY = dx * c + dy * s;
+
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    double fieldX = arcX * cos - arcY * sin;
+    double fieldY = arcX * sin + arcY * cos;
+    x += fieldX;
+    y += fieldY;
+
+    // Take the heading straight from the gyro so rounding in the exponential never accumulates.
+    heading = gyro;
+
+    // Wheel slip and scrub grow with distance, equally in every direction.
+    double distance = Math.hypot(fieldX, fieldY);
+    double wheel = Constants.drive.estimator.WHEEL_STD * distance;
+    pxx += wheel * wheel;
+    pyy += wheel * wheel;
+
+    // A heading error swings the step sideways. This is the Jacobian of the step with respect to
+    // heading, scaled by the gyro's uncertainty.
+    double gyroStd = Constants.drive.estimator.GYRO_STD;
+    double jx = -fieldY * gyroStd;
+    double jy = fieldX * gyroStd;
+    pxx += jx * jx;
+    pxy += jx * jy;
+    pyy += jy * jy;
+
+    history.add(timestamp, x, y, heading);
+  }
+
+  /**
+   * Correct the estimate with a field position measured at some time in the recent past.
+   *
+   * @param measuredX Measured X position (Meters).
+   * @param measuredY Measured Y position (Meters).
+   * @param std Standard deviation of the measurement in each axis (Meters).
+   * @param timestamp FPGA time the measurement was captured at (Seconds).
+   * @return False if the measurement was rejected as an outlier.
+   */
+  public synchronized boolean correct(
+      double measuredX, double measuredY, double std, double timestamp) {
+    if (!history.getPoseAt(timestamp, past)) {
+      past[0] = x;
+      past[1] = y;
+    }
+
+    double innovationX = measuredX - past[0];
+    double innovationY = measuredY - past[1];
+
+    // Innovation covariance S = P + R, and its inverse.
+    double r = std * std;
+    double sxx = pxx + r;
+    double sxy = pxy;
+    double syy = pyy + r;
+    double det = sxx * syy - sxy * sxy;
+    double ixx = syy / det;
+    double ixy = -sxy / det;
+    double iyy = sxx / det;
+
+    // Reject measurements too unlikely to be real, such as a reflection picked up as the target.
+    double mahalanobis =
+        innovationX * (ixx * innovationX + ixy * innovationY)
+            + innovationY * (ixy * innovationX + iyy * innovationY);
+    if (mahalanobis > Constants.drive.estimator.OUTLIER_GATE) return false;
+
+    // Kalman gain K = P S^-1.
+    double kxx = pxx * ixx + pxy * ixy;
+    double kxy = pxx * ixy + pxy * iyy;
+    double kyx = pxy * ixx + pyy * ixy;
+    double kyy = pxy * ixy + pyy * iyy;
+
+    double correctionX = kxx * innovationX + kxy * innovationY;
+    double correctionY = kyx * innovationX + kyy * innovationY;
+    x += correctionX;
+    y += correctionY;
+    // Earlier estimates move with the current one so the next late measurement sees the
+    // correction.
+    history.shift(correctionX, correctionY);
+
+    // P = (I - K) P, kept symmetric.
+    double nxx = (1.0 - kxx) * pxx - kxy * pxy;
+    double nxy = (1.0 - kxx) * pxy - kxy * pyy;
+    double nyy = -kyx * pxy + (1.0 - kyy) * pyy;
+    pxx = nxx;
+    pxy = nxy;
+    pyy = nyy;
+
+    return true;
+  }
+
+  /**
+   * Set the estimated position, as certain as the robot's placement on the field.
+   *
+   * @param x X position (Meters).
+   * @param y Y position (Meters).
+   */
+  public synchronized void reset(double x, double y) {
+    this.x = x;
+    this.y = y;
+    resetCovariance();
+    // Poses from before the reset are in a different frame.
+    history.clear();
+  }
+
+  /**
+   * Copy the current estimate.
+   *
+   * @param out Array of at least three elements to receive {x, y, heading} in meters and radians.
+   */
+  public synchronized void getPose(double[] out) {
+    out[0] = x;
+    out[1] = y;
+    out[2] = heading;
+  }
+
+  /** Returns the standard deviation of the position estimate along its worst axis (Meters). */
+  public synchronized double getPositionStd() {
+    // Largest eigenvalue of the 2x2 covariance.
+    double mean = 0.5 * (pxx + pyy);
+    double spread = Math.hypot(0.5 * (pxx - pyy), pxy);
+    return Math.sqrt(mean + spread);
+  }
+
+  private void resetCovariance() {
+    double std = Constants.drive.estimator.INITIAL_STD;
+    pxx = std * std;
+    pxy = 0.0;
+    pyy = std * std;
+  }
+}
@@ -0,0 +1,141 @@
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+
+/**
+ * Fixed-size ring buffer of timestamped poses, used to look up where the robot was when a late
+ * measurement (such as a camera frame) was captured. Poses are stored in parallel primitive arrays
+ * so recording and lookups do not allocate.
+ */
+public class PoseHistory {
+
+  private final double[] timestamps;
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] headings;
+
+  /** Index the next sample will be written to. */
+  private int head = 0;
+  /** Number of valid samples in the buffer. */
+  private int size = 0;
+
+  /**
+   * Constructs a new PoseHistory.
+   *
+   * @param capacity Number of samples to keep before the oldest is overwritten.
+   */
+  public PoseHistory(int capacity) {
+    timestamps = new double[capacity];
+    xs = new double[capacity];
+    ys = new double[capacity];
+    headings = new double[capacity];
+  }
+
+  /**
+   * Record a pose. Timestamps must be added in increasing order.
+   *
+   * @param timestamp Time the pose was measured (Seconds).
+   * @param x X position (Meters).
+   * @param y Y position (Meters).
+   * @param heading Heading (Radians).
+   */
+  public synchronized void add(double timestamp, double x, double y, double heading) {
+    timestamps[head] = timestamp;
+    xs[head] = x;
+    ys[head] = y;
+    headings[head] = heading;
+
+    head = (head + 1) % timestamps.length;
+    if (size < timestamps.length) size++;
+  }
+
+  /** Forget every recorded pose. */
+  public synchronized void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  /**
+   * Move every recorded pose by the same amount, so lookups agree with a correction made to the
+   * current pose.
+   *
+   * @param dx Change in X position (Meters).
+   * @param dy Change in Y position (Meters).
+   */
+  public synchronized void shift(double dx, double dy) {
+    for (int i = 0; i < size; i++) {
+      xs[index(i)] += dx;
+      ys[index(i)] += dy;
+    }
+  }
+
+  /** Returns the number of recorded poses. */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Interpolate the pose at a given time. Times before the oldest or after the newest sample are
+   * clamped to that sample.
+   *
+   * @param timestamp Time to look up (Seconds).
+   * @param out Array of at least three elements to receive {x, y, heading} in meters and radians.
+   * @return False if no poses have been recorded, in which case out is left untouched.
+   */
+  public synchronized boolean getPoseAt(double timestamp, double[] out) {
+    if (size == 0) return false;
+
+    if (timestamp <= timestamps[index(0)]) {
+      copy(index(0), out);
+      return true;
+    }
+    if (timestamp >= timestamps[index(size - 1)]) {
+      copy(index(size - 1), out);
+      return true;
+    }
+
+    // Binary search for the last sample at or before the timestamp.
+    int low = 0;
+    int high = size - 1;
+    while (high - low > 1) {
+      int mid = (low + high) >>> 1;
+      if (timestamps[index(mid)] <= timestamp) low = mid;
+      else high = mid;
+    }
+
+    int before = index(low);
+    int after = index(high);
+    double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+
+    out[0] = xs[before] + (xs[after] - xs[before]) * t;
+    out[1] = ys[before] + (ys[after] - ys[before]) * t;
+    // Interpolate the heading the short way around the circle.
+    out[2] =
+        headings[before]
+            + Math.IEEEremainder(headings[after] - headings[before], 2.0 * Math.PI) * t;
+    return true;
+  }
+
+  /**
+   * Interpolate the pose at a given time.
+   *
+   * @param timestamp Time to look up (Seconds).
+   * @return Interpolated pose, or null if no poses have been recorded.
+   */
+  public Pose2d getPoseAt(double timestamp) {
+    double[] out = new double[3];
+    if (!getPoseAt(timestamp, out)) return null;
+    return new Pose2d(out[0], out[1], new Rotation2d(out[2]));
+  }
+
+  private int index(int i) {
+    return (head - size + i + timestamps.length) % timestamps.length;
+  }
+
+  private void copy(int i, double[] out) {
+    out[0] = xs[i];
+    out[1] = ys[i];
+    out[2] = headings[i];
+  }
+}
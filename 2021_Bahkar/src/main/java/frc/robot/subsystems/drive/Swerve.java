@@ -5,9 +5,7 @@
 package frc.robot.subsystems.drive;
 
 import edu.wpi.first.wpilibj.Notifier;
-import edu.wpi.first.wpilibj.controller.PIDController;
 import edu.wpi.first.wpilibj.geometry.Pose2d;
-import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.wpilibj.kinematics.SwerveModuleState;
@@ -17,6 +15,7 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.Robot;
+import frc.robot.math.AccelerationLimiter;
 import frc.robot.subsystems.sensors.Sensors;
 
 public class Swerve extends SubsystemBase {
@@ -38,9 +37,13 @@ public class Swerve extends SubsystemBase {
 
   private final Field2d field = new Field2d();
 
+  /** Capture time of the last vision frame fused into odometry, so none is counted twice. */
+  private double lastVisionTime = Double.NaN;
+
+  private final double[] visionPose = new double[3];
+
   private Sensors sensors = Sensors.getInstance();
 
-  // private Kinematics kinematics = Constants.drive.KINEMATICS;
   SwerveDriveKinematics kinematics =
       new SwerveDriveKinematics(
           Constants.drive.FrontLeftLocation,
@@ -48,37 +51,107 @@ public class Swerve extends SubsystemBase {
           Constants.drive.BackLeftLocation,
           Constants.drive.BackRightLocation);
 
-  private PIDController rotationPID = new PIDController(0.1, 0.0, 0.01);
+  /** Allocation-free kinematics used on every loop. */
+  private final Kinematics driveKinematics =
+      new Kinematics(
+          Constants.drive.FrontLeftLocation,
+          Constants.drive.FrontRightLocation,
+          Constants.drive.BackLeftLocation,
+          Constants.drive.BackRightLocation);
+
+  private final TractionControl traction = new TractionControl(driveKinematics);
+
+  private final Module[] modules = {leftFront, rightFront, leftRear, rightRear};
+
+  // Preallocated so the control path can run every loop without creating garbage.
+  private final ModuleState[] commandStates = {
+    new ModuleState(), new ModuleState(), new ModuleState(), new ModuleState()
+  };
+  private final ModuleState[] measuredStates = {
+    new ModuleState(), new ModuleState(), new ModuleState(), new ModuleState()
+  };
+  private final double[] measuredSpeeds = new double[3];
+  private final double[] correctedSpeeds = new double[3];
+
+  /** Keeps hand driving from tipping the robot or breaking traction. */
+  private final AccelerationLimiter limiter =
+      new AccelerationLimiter(
+          Constants.drive.MAX_ACCEL,
+          Constants.drive.MAX_CACCEL,
+          Constants.drive.MAX_ANGULAR_ACCEL,
+          Constants.drive.MAX_JERK);
+
+  private final HeadingController headingController = new HeadingController();
+
+  // Limits read from the dashboard on its thread, and handed to the limiter on the main loop.
+  private volatile double dashboardAccel = Constants.drive.MAX_ACCEL;
+  private volatile double dashboardCentripetalAccel = Constants.drive.MAX_CACCEL;
+  private volatile double dashboardAngularAccel = Constants.drive.MAX_ANGULAR_ACCEL;
+  private volatile double dashboardJerk = Constants.drive.MAX_JERK;
 
   private Notifier dashboard = new Notifier(() -> smartDashboard());
-  private Notifier odometryNotifier = new Notifier(() -> runOdo());
+  private final SwerveSim sim =
+      Robot.isSimulation()
+          ? new SwerveSim(
+              driveKinematics,
+              leftFront.getSim(),
+              rightFront.getSim(),
+              leftRear.getSim(),
+              rightRear.getSim())
+          : null;
+
+  private OdometryThread odometryThread =
+      new OdometryThread(driveKinematics, traction, leftFront, rightFront, leftRear, rightRear);
 
   /** Creates a new Swerve. */
   private Swerve() {
     CommandScheduler.getInstance().registerSubsystem(this);
-    rotationPID.enableContinuousInput(-180, 180);
-    rotationPID.setTolerance(2.0);
 
     SmartDashboard.putData("Field", field);
+    SmartDashboard.putNumber("Max Accel", Constants.drive.MAX_ACCEL);
+    SmartDashboard.putNumber("Max Centripetal Accel", Constants.drive.MAX_CACCEL);
+    SmartDashboard.putNumber("Max Angular Accel", Constants.drive.MAX_ANGULAR_ACCEL);
+    SmartDashboard.putNumber("Max Jerk", Constants.drive.MAX_JERK);
 
     if (Robot.isReal()) dashboard.startPeriodic(0.2);
     else dashboard.startPeriodic(0.05);
-    odometryNotifier.startPeriodic(0.05);
+    odometryThread.start();
   }
 
   @Override
-  public void periodic() {}
+  public void periodic() {
+    limiter.setLimits(
+        dashboardAccel, dashboardCentripetalAccel, dashboardAngularAccel, dashboardJerk);
+
+    // The odometry thread keeps the module snapshots fresh; without it, refresh them once a loop.
+    if (!odometryThread.isRunning()) {
+      for (int i = 0; i < modules.length; i++) {
+        modules[i].sample();
+        modules[i].getModuleState(measuredStates[i]);
+      }
+      traction.update(measuredStates, -getGyroRate());
+    }
 
-  private void runOdo() {
-    odometry.update(sensors.getRotation(), getChassisSpeeds());
-    field.setRobotPose(odometry.getPose());
+    double visionTime = sensors.getVisionTimestamp();
+    if (visionTime != lastVisionTime) {
+      lastVisionTime = visionTime;
+      // Move the camera back to the robot's center by the heading it had when the frame was taken.
+      odometry.getPoseAt(visionTime, visionPose);
+      double heading = Constants.drive.GYRO_INVERTED ? -visionPose[2] : visionPose[2];
+      if (sensors.getVisionPosition(heading, visionPose)) {
+        odometry.addVisionMeasurement(
+            visionPose[0], visionPose[1], visionTime, sensors.getDistance());
+      }
+    }
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    sim.update(Constants.drive.CONTROL_PERIOD);
   }
 
   public void stop() {
-    leftFront.stop();
-    rightFront.stop();
-    leftRear.stop();
-    rightRear.stop();
+    for (Module module : modules) module.stop();
   }
 
   private void smartDashboard() {
@@ -86,54 +159,268 @@ public class Swerve extends SubsystemBase {
     SmartDashboard.putNumber("RF Angle", rightFront.getAbsoluteAngle());
     SmartDashboard.putNumber("LR Angle", leftRear.getAbsoluteAngle());
     SmartDashboard.putNumber("RR Angle", rightRear.getAbsoluteAngle());
+    SmartDashboard.putNumber("LF Slip", traction.getSlip(0));
+    SmartDashboard.putNumber("RF Slip", traction.getSlip(1));
+    SmartDashboard.putNumber("LR Slip", traction.getSlip(2));
+    SmartDashboard.putNumber("RR Slip", traction.getSlip(3));
+
+    odometry.updateShuffleboard();
+    field.setRobotPose(odometry.getPose());
+
+    dashboardAccel = SmartDashboard.getNumber("Max Accel", Constants.drive.MAX_ACCEL);
+    dashboardCentripetalAccel =
+        SmartDashboard.getNumber("Max Centripetal Accel", Constants.drive.MAX_CACCEL);
+    dashboardAngularAccel =
+        SmartDashboard.getNumber("Max Angular Accel", Constants.drive.MAX_ANGULAR_ACCEL);
+    dashboardJerk = SmartDashboard.getNumber("Max Jerk", Constants.drive.MAX_JERK);
   }
 
   public void drive(double yInput, double xInput, double rotInput, boolean fieldOriented) {
+    drive(yInput, xInput, rotInput, fieldOriented, Constants.drive.DISCRETIZE);
+  }
+
+  /**
+   * Drive the robot from joystick inputs. Changes in speed are limited by {@link
+   * #setAccelerationLimits}.
+   *
+   * @param yInput Forward input [-1.0, 1.0].
+   * @param xInput Sideways input [-1.0, 1.0].
+   * @param rotInput Rotation input [-1.0, 1.0].
+   * @param fieldOriented False to drive relative to the field, true to drive relative to the robot.
+   * @param discretize Whether to correct for translating and rotating over one loop.
+   */
+  public void drive(
+      double yInput, double xInput, double rotInput, boolean fieldOriented, boolean discretize) {
     yInput *= -Constants.drive.MAX_VELOCITY;
     xInput *= Constants.drive.MAX_VELOCITY;
     rotInput *= 4.0 * Math.PI;
 
-    if (rotInput != 0.0) {
-      setRotSetpoint(-sensors.getRotation().getDegrees());
+    double heading = sensors.getRotationDegrees();
+
+    // Turn by hand while the stick is held, otherwise hold or snap heading.
+    rotInput = headingController.calculate(getGyroHeading(heading), getGyroRate(), rotInput);
+
+    // Limit in the frame the driver is steering in, so turning the robot does not count as
+    // accelerating it.
+    limiter.calculate(yInput, xInput, rotInput);
+    yInput = limiter.getX();
+    xInput = limiter.getY();
+    rotInput = limiter.getOmega();
+
+    if (!fieldOriented) {
+      // Same as ChassisSpeeds.fromFieldRelativeSpeeds, without the allocation.
+      double cos = Math.cos(Math.toRadians(heading));
+      double sin = Math.sin(Math.toRadians(heading));
+      setChassisSpeeds(
+          yInput * cos + xInput * sin, -yInput * sin + xInput * cos, rotInput, discretize);
     } else {
-      if (yInput != 0 || xInput != 0) {
-        double correction = rotationPID.calculate(-sensors.getRotation().getDegrees());
-        rotInput = rotationPID.atSetpoint() ? 0.0 : correction;
-      }
+      setChassisSpeeds(yInput, xInput, rotInput, discretize);
     }
+  }
 
-    setChassisSpeeds(
-        !fieldOriented
-            ? ChassisSpeeds.fromFieldRelativeSpeeds(yInput, xInput, rotInput, sensors.getRotation())
-            : new ChassisSpeeds(yInput, xInput, rotInput));
+  /**
+   * Change how quickly {@link #drive} may change the speed of the robot, from the next loop. Also
+   * adjustable from the dashboard.
+   *
+   * @param maxAccel Maximum acceleration along the direction of travel (Meters per Second Squared).
+   * @param maxCentripetalAccel Maximum acceleration across the direction of travel (Meters per
+   *     Second Squared).
+   * @param maxAngularAccel Maximum angular acceleration (Radians per Second Squared).
+   * @param maxJerk Maximum change in acceleration (Meters per Second Cubed).
+   */
+  public void setAccelerationLimits(
+      double maxAccel, double maxCentripetalAccel, double maxAngularAccel, double maxJerk) {
+    SmartDashboard.putNumber("Max Accel", maxAccel);
+    SmartDashboard.putNumber("Max Centripetal Accel", maxCentripetalAccel);
+    SmartDashboard.putNumber("Max Angular Accel", maxAngularAccel);
+    SmartDashboard.putNumber("Max Jerk", maxJerk);
+    dashboardAccel = maxAccel;
+    dashboardCentripetalAccel = maxCentripetalAccel;
+    dashboardAngularAccel = maxAngularAccel;
+    dashboardJerk = maxJerk;
   }
 
+  /**
+   * Turn the robot to a heading and hold it there until the driver turns it by hand.
+   *
+   * @param setpoint Heading in the frame of the chassis speeds (Degrees).
+   */
   public void setRotSetpoint(double setpoint) {
-    rotationPID.setSetpoint(setpoint);
+    headingController.snapTo(Math.toRadians(setpoint));
+  }
+
+  /**
+   * Turn the robot to the nearest multiple of an angle, such as square to the field.
+   *
+   * @param increment Angle to round the current heading to (Degrees).
+   */
+  public void snapToNearest(double increment) {
+    double heading = Math.toDegrees(getGyroHeading(sensors.getRotationDegrees()));
+    setRotSetpoint(Math.round(heading / increment) * increment);
+  }
+
+  /** Hold whatever heading the robot is at, for example after the gyro is reset. */
+  public void holdHeading() {
+    headingController.holdCurrent();
+  }
+
+  /** Converts a gyro heading in degrees to radians in the frame of the chassis speeds. */
+  private double getGyroHeading(double degrees) {
+    return Math.toRadians(Constants.drive.GYRO_INVERTED ? -degrees : degrees);
+  }
+
+  /** Returns the gyro's yaw rate in the frame of the chassis speeds (Radians per Second). */
+  private double getGyroRate() {
+    double rate = Math.toRadians(sensors.getRotationRate());
+    return Constants.drive.GYRO_INVERTED ? -rate : rate;
   }
 
   public void setChassisSpeeds(ChassisSpeeds speeds) {
-    if (Robot.isSimulation()) odometry.update(new Rotation2d(), speeds);
-    else setModuleStates(kinematics.toSwerveModuleStates(speeds));
+    setChassisSpeeds(
+        speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+  }
+
+  /**
+   * Drive the robot at the given robot relative speeds.
+   *
+   * @param vx Velocity along the robot's X axis (Meters per Second).
+   * @param vy Velocity along the robot's Y axis (Meters per Second).
+   * @param omega Angular velocity (Radians per Second).
+   */
+  public void setChassisSpeeds(double vx, double vy, double omega) {
+    setChassisSpeeds(vx, vy, omega, Constants.drive.DISCRETIZE);
+  }
+
+  /**
+   * Drive the robot at the given robot relative speeds.
+   *
+   * @param vx Velocity along the robot's X axis (Meters per Second).
+   * @param vy Velocity along the robot's Y axis (Meters per Second).
+   * @param omega Angular velocity (Radians per Second).
+   * @param discretize Whether to correct the speeds for the arc traced over one control period,
+   *     which otherwise makes the robot curve off-line when translating and rotating together.
+   */
+  public void setChassisSpeeds(double vx, double vy, double omega, boolean discretize) {
+    setChassisSpeeds(vx, vy, omega, 0.0, 0.0, discretize);
+  }
+
+  /**
+   * Drive the robot at the given robot relative speeds, with feedforward for an acceleration.
+   *
+   * @param vx Velocity along the robot's X axis (Meters per Second).
+   * @param vy Velocity along the robot's Y axis (Meters per Second).
+   * @param omega Angular velocity (Radians per Second).
+   * @param ax Acceleration along the robot's X axis (Meters per Second Squared).
+   * @param ay Acceleration along the robot's Y axis (Meters per Second Squared).
+   * @param discretize Whether to correct the speeds for the arc traced over one control period.
+   */
+  public void setChassisSpeeds(
+      double vx, double vy, double omega, double ax, double ay, boolean discretize) {
+    if (discretize) {
+      Kinematics.discretize(vx, vy, omega, Constants.drive.CONTROL_PERIOD, correctedSpeeds);
+      vx = correctedSpeeds[0];
+      vy = correctedSpeeds[1];
+      omega = correctedSpeeds[2];
+    }
+
+    driveKinematics.toModuleStates(vx, vy, omega, commandStates);
+    for (ModuleState state : commandStates) {
+      // Each wheel only feels the part of the chassis acceleration along the way it points.
+      double angle = Math.toRadians(state.angleDegrees);
+      state.accelerationMetersPerSecondSq = ax * Math.cos(angle) + ay * Math.sin(angle);
+    }
+    setModuleStates(commandStates);
+  }
+
+  /**
+   * Drive every module straight forward at a fixed voltage, without closed loop control. Used to
+   * characterize the drivetrain.
+   *
+   * @param volts Voltage to apply to the speed motors.
+   */
+  public void setDriveVoltage(double volts) {
+    for (Module module : modules) module.setDriveVoltage(volts, 0.0);
+  }
+
+  /**
+   * Returns the average distance driven by the modules, in the same direction as {@link
+   * #setDriveVoltage}.
+   *
+   * @return Distance (Meters).
+   */
+  public double getDrivePosition() {
+    double sum = 0.0;
+    for (Module module : modules) sum += module.getPosition();
+    return -sum / modules.length;
+  }
+
+  /**
+   * Returns the average speed of the modules, in the same direction as {@link #setDriveVoltage}.
+   *
+   * @return Speed (Meters per Second).
+   */
+  public double getDriveVelocity() {
+    double sum = 0.0;
+    for (Module module : modules) sum += module.getVelocity();
+    return -sum / modules.length;
   }
 
   public void setModuleStates(SwerveModuleState[] states) {
-    SwerveDriveKinematics.normalizeWheelSpeeds(states, Constants.drive.MAX_VELOCITY);
+    for (int i = 0; i < modules.length; i++) {
+      commandStates[i].set(states[i].speedMetersPerSecond, states[i].angle.getDegrees(), 0.0);
+    }
+    setModuleStates(commandStates);
+  }
+
+  /**
+   * Command every module. The states are limited for wheel slip and normalized in place.
+   *
+   * @param states Desired state of each module, in the order of the kinematics.
+   */
+  public void setModuleStates(ModuleState[] states) {
+    traction.limit(states);
+    Kinematics.normalize(states, Constants.drive.MAX_VELOCITY);
 
-    leftFront.setModuleState(
-        new SwerveModuleState(states[0].speedMetersPerSecond, states[0].angle));
-    rightFront.setModuleState(
-        new SwerveModuleState(states[1].speedMetersPerSecond, states[1].angle));
-    leftRear.setModuleState(new SwerveModuleState(states[2].speedMetersPerSecond, states[2].angle));
-    rightRear.setModuleState(
-        new SwerveModuleState(states[3].speedMetersPerSecond, states[3].angle));
+    for (int i = 0; i < modules.length; i++) modules[i].setModuleState(states[i]);
   }
 
   public ChassisSpeeds getChassisSpeeds() {
-    ChassisSpeeds temp = kinematics.toChassisSpeeds(getModuleStates());
+    updateMeasuredSpeeds();
 
-    return new ChassisSpeeds(
-        -temp.vxMetersPerSecond, -temp.vyMetersPerSecond, temp.omegaRadiansPerSecond);
+    return new ChassisSpeeds(measuredSpeeds[0], measuredSpeeds[1], measuredSpeeds[2]);
+  }
+
+  /**
+   * Get the measured robot relative speeds of the robot without allocating.
+   *
+   * @param out Array of at least three elements to receive {vx, vy, omega} in meters and radians
+   *     per second.
+   */
+  public void getChassisSpeeds(double[] out) {
+    updateMeasuredSpeeds();
+
+    out[0] = measuredSpeeds[0];
+    out[1] = measuredSpeeds[1];
+    out[2] = measuredSpeeds[2];
+  }
+
+  /**
+   * Returns the measured angular velocity of the robot without allocating.
+   *
+   * @return Angular velocity (Radians per Second).
+   */
+  public double getRotationalVelocity() {
+    updateMeasuredSpeeds();
+
+    return measuredSpeeds[2];
+  }
+
+  private void updateMeasuredSpeeds() {
+    for (int i = 0; i < modules.length; i++) modules[i].getModuleState(measuredStates[i]);
+    driveKinematics.toChassisSpeeds(measuredStates, measuredSpeeds);
+
+    measuredSpeeds[0] = -measuredSpeeds[0];
+    measuredSpeeds[1] = -measuredSpeeds[1];
   }
 
   public SwerveModuleState[] getModuleStates() {
@@ -149,10 +436,24 @@ public class Swerve extends SubsystemBase {
     return odometry.getPose();
   }
 
+  /**
+   * Get the estimated position of the robot and its heading without allocating.
+   *
+   * @param out Array of at least three elements to receive {x, y, heading} in meters and radians.
+   */
+  public void getPose(double[] out) {
+    odometry.getPose(out);
+  }
+
   public SwerveDriveKinematics getKinematics() {
     return kinematics;
   }
 
+  /** Returns the field shown on the dashboard, to draw paths on. */
+  public Field2d getField() {
+    return field;
+  }
+
   public double getFrontLeftAngleTemp() {
     return leftFront.getAngleTemp();
   }
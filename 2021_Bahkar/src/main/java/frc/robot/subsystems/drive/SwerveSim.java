@@ -0,0 +1,92 @@
+package frc.robot.subsystems.drive;
+
+import frc.robot.Constants;
+import frc.robot.subsystems.sensors.Sensors;
+
+/**
+ * Rigid body model of the drivetrain for desktop simulation. Each module pushes the chassis with
+ * the force of its drive motor, limited by the grip of its wheel, and the chassis turns the wheels
+ * back at the speed of the carpet under them. The resulting rotation is fed to the simulated
+ * Pigeon.
+ */
+public class SwerveSim {
+
+  private final Kinematics kinematics;
+  private final ModuleSim[] modules;
+  private final Sensors sensors = Sensors.getInstance();
+
+  /** Velocity of the chassis in its own frame (Meters per Second, Radians per Second). */
+  private double vx = 0.0;
+  private double vy = 0.0;
+  private double omega = 0.0;
+
+  /**
+   * Constructs a new SwerveSim. The modules must be given in the same order as the kinematics
+   * object was constructed with.
+   *
+   * @param kinematics Kinematics of the drivetrain.
+   * @param modules Simulated modules.
+   */
+  public SwerveSim(Kinematics kinematics, ModuleSim... modules) {
+    this.kinematics = kinematics;
+    this.modules = modules;
+  }
+
+  /**
+   * Advance the simulation.
+   *
+   * @param dt Time since the last update (Seconds).
+   */
+  public void update(double dt) {
+    double maxForce =
+        Constants.drive.WHEEL_COF
+            * Constants.drive.sim.ROBOT_MASS
+            * 9.81
+            / kinematics.getModuleCount();
+
+    double heading = 0.0;
+    int steps = (int) Math.ceil(dt / ModuleSim.TALON_PERIOD);
+    double step = dt / steps;
+
+    for (int s = 0; s < steps; s++) {
+      double fx = 0.0;
+      double fy = 0.0;
+      double torque = 0.0;
+
+      for (int i = 0; i < modules.length; i++) {
+        // The drive motor is reversed from the module state.
+        double force = -modules[i].getDriveForce();
+        force = Math.max(-maxForce, Math.min(maxForce, force));
+
+        double angle = Math.toRadians(modules[i].getAngle());
+        double x = force * Math.cos(angle);
+        double y = force * Math.sin(angle);
+        fx += x;
+        fy += y;
+        torque += kinematics.getModuleX(i) * y - kinematics.getModuleY(i) * x;
+      }
+
+      // Carpet and bearings bleed off a little speed.
+      double damping = Constants.drive.sim.DAMPING;
+      double ax = fx / Constants.drive.sim.ROBOT_MASS - damping * vx + omega * vy;
+      double ay = fy / Constants.drive.sim.ROBOT_MASS - damping * vy - omega * vx;
+      double alpha = torque / Constants.drive.sim.MOMENT_OF_INERTIA - damping * omega;
+
+      vx += ax * step;
+      vy += ay * step;
+      omega += alpha * step;
+      heading += omega * step;
+
+      for (int i = 0; i < modules.length; i++) {
+        double angle = Math.toRadians(modules[i].getAngle());
+        double ground =
+            (vx - omega * kinematics.getModuleY(i)) * Math.cos(angle)
+                + (vy + omega * kinematics.getModuleX(i)) * Math.sin(angle);
+        modules[i].update(-ground, step);
+      }
+    }
+
+    double sign = Constants.drive.GYRO_INVERTED ? -1.0 : 1.0;
+    sensors.addSimRotation(sign * Math.toDegrees(heading), sign * Math.toDegrees(omega));
+  }
+}
@@ -0,0 +1,119 @@
+package frc.robot.subsystems.drive;
+
+import frc.robot.Constants;
+
+/**
+ * Detects wheels that are slipping on the carpet. Each wheel's measured speed is compared with the
+ * speed of the ground under it, as implied by the other wheels and the gyro's yaw rate. A slipping
+ * wheel has its command held near the ground speed so it can regain grip, and is given less weight
+ * in odometry.
+ */
+public class TractionControl {
+
+  private final Kinematics kinematics;
+  private final int count;
+
+  private final double[] groundSpeeds;
+  private final double[] slips;
+  private final double[] weights;
+  private final boolean[] spinning;
+
+  /**
+   * Constructs a new TractionControl.
+   *
+   * @param kinematics Kinematics of the drivetrain.
+   */
+  public TractionControl(Kinematics kinematics) {
+    this.kinematics = kinematics;
+    count = kinematics.getModuleCount();
+
+    groundSpeeds = new double[count];
+    slips = new double[count];
+    weights = new double[count];
+    spinning = new boolean[count];
+    for (int i = 0; i < count; i++) weights[i] = 1.0;
+  }
+
+  /**
+   * Update the slip of each wheel from a new measurement.
+   *
+   * @param states Measured state of each module, in the order of the kinematics.
+   * @param omega Yaw rate measured by the gyro, in the frame of the chassis speeds (Radians per
+   *     Second).
+   */
+  public synchronized void update(ModuleState[] states, double omega) {
+    // Sum of the chassis velocity each wheel implies once the gyro's rotation is taken out.
+    double sumX = 0.0;
+    double sumY = 0.0;
+    for (int i = 0; i < count; i++) {
+      double angle = Math.toRadians(states[i].angleDegrees);
+      sumX += states[i].speedMetersPerSecond * Math.cos(angle) + omega * kinematics.getModuleY(i);
+      sumY += states[i].speedMetersPerSecond * Math.sin(angle) - omega * kinematics.getModuleX(i);
+    }
+
+    for (int i = 0; i < count; i++) {
+      double angle = Math.toRadians(states[i].angleDegrees);
+      double cos = Math.cos(angle);
+      double sin = Math.sin(angle);
+      double speed = states[i].speedMetersPerSecond;
+
+      // Chassis velocity from every other wheel, so a spinning wheel cannot vouch for itself.
+      double vx = (sumX - speed * cos - omega * kinematics.getModuleY(i)) / (count - 1);
+      double vy = (sumY - speed * sin + omega * kinematics.getModuleX(i)) / (count - 1);
+
+      // Speed of the ground along the direction the wheel rolls.
+      double ground =
+          (vx - omega * kinematics.getModuleY(i)) * cos
+              + (vy + omega * kinematics.getModuleX(i)) * sin;
+
+      double slip =
+          Math.abs(speed - ground) / Math.max(Math.abs(ground), Constants.drive.traction.MIN_SPEED);
+
+      groundSpeeds[i] = ground;
+      slips[i] = slip;
+      boolean slipping = slip > Constants.drive.traction.SLIP_RATIO;
+      spinning[i] = slipping && Math.abs(speed) > Math.abs(ground);
+      weights[i] = slipping ? Math.pow(Constants.drive.traction.SLIP_RATIO / slip, 2.0) : 1.0;
+    }
+  }
+
+  /**
+   * Hold the command of each spinning wheel to just above the speed of the ground under it.
+   *
+   * @param states Commanded module states to limit in place, in the order of the kinematics.
+   */
+  public synchronized void limit(ModuleState[] states) {
+    if (!Constants.drive.traction.ENABLED) return;
+
+    for (int i = 0; i < count; i++) {
+      if (!spinning[i]) continue;
+
+      double max =
+          Math.abs(groundSpeeds[i]) * (1.0 + Constants.drive.traction.SLIP_RATIO)
+              + Constants.drive.traction.MIN_SPEED * Constants.drive.traction.SLIP_RATIO;
+      if (Math.abs(states[i].speedMetersPerSecond) > max) {
+        double scale = max / Math.abs(states[i].speedMetersPerSecond);
+        states[i].speedMetersPerSecond *= scale;
+        states[i].accelerationMetersPerSecondSq *= scale;
+      }
+    }
+  }
+
+  /**
+   * Copy how much odometry should trust each wheel.
+   *
+   * @param out Array to receive a weight from 0 to 1 for each module.
+   */
+  public synchronized void getWeights(double[] out) {
+    System.arraycopy(weights, 0, out, 0, count);
+  }
+
+  /**
+   * Returns how far a wheel's speed is from the ground under it, as a fraction of the ground speed.
+   *
+   * @param module Index of the module, in the order of the kinematics.
+   */
+  public synchronized double getSlip(int module) {
+    return slips[module];
+  }
+}
@@ -1,14 +1,16 @@
 package frc.robot.subsystems.sensors;
 
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.geometry.Pose2d;
-import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.util.Units;
 
 public class Limelight {
   private NetworkTable limeTable = null;
+  private final NetworkTableEntry camtran;
 
+  /** Field pose of the target, facing out into the field. */
   private Pose2d goalPose = new Pose2d();
 
   /** Enum to control camera mode. */
@@ -47,6 +49,7 @@ public class Limelight {
 
   public Limelight(String tableName) {
     limeTable = NetworkTableInstance.getDefault().getTable(tableName);
+    camtran = limeTable.getEntry("camtran");
   }
 
   public void setPipeline(int pipeline) {
@@ -61,6 +64,11 @@ public class Limelight {
     limeTable.getEntry("ledMode").setNumber(mode.getValue());
   }
 
+  /**
+   * Set where the target is on the field, for {@link #getCameraPosition}.
+   *
+   * @param pose Field pose of the target, facing out into the field.
+   */
   public void setGoalPose(Pose2d pose) {
     goalPose = pose;
   }
@@ -73,43 +81,60 @@ public class Limelight {
     return limeTable.getEntry("ty").getDouble(0.0);
   }
 
+  /**
+   * Returns the time between the image being captured and the results being published.
+   *
+   * @return Total latency (Seconds).
+   */
+  public double getLatency() {
+    // The pipeline latency does not include the roughly 11ms of image capture.
+    return (limeTable.getEntry("tl").getDouble(0.0) + 11.0) / 1000.0;
+  }
+
   public int targetCount() {
     return (int) Math.round(limeTable.getEntry("tv").getDouble(0.0));
   }
 
   public double[] getCamTran() {
     try {
-      return limeTable.getEntry("camtran").getDoubleArray(new double[0]);
+      return camtran.getDoubleArray(new double[0]);
     } catch (Exception e) {
       // e.printStackTrace();
       return new double[0];
     }
   }
 
-  public Pose2d getPose2d() {
-    try {
-      double[] dimensions = getCamTran();
-      Pose2d goalRel =
-          new Pose2d(
-              Units.inchesToMeters(dimensions[0]),
-              Units.inchesToMeters(dimensions[2]),
-              new Rotation2d(Math.toRadians(dimensions[4])));
-
-      double dist = Math.hypot(goalRel.getX(), goalRel.getY());
-      double totalAngle =
-          Math.atan2(goalRel.getY(), goalRel.getX()) + goalPose.getRotation().getRadians();
-
-      double botX = Math.cos(totalAngle) * dist + goalPose.getX();
-      double botY = Math.sin(totalAngle) * dist + goalPose.getY();
-
-      return new Pose2d(
-          botX,
-          botY,
-          new Rotation2d(goalPose.getRotation().getRadians() + goalRel.getRotation().getRadians()));
-    } catch (Exception e) {
-      // e.printStackTrace();
-      return null;
-    }
+  /**
+   * Returns when the latest frame was captured. It changes only when a new frame arrives, so it
+   * also tells frames apart without reading them.
+   *
+   * @return FPGA time of capture (Seconds).
+   */
+  public double getFrameTime() {
+    // NetworkTables stamps an entry with the FPGA clock when it changes (Microseconds).
+    return camtran.getLastChange() / 1e6 - getLatency();
+  }
+
+  /**
+   * Get the field position of the camera from the latest frame's camtran, the camera's position
+   * relative to the target.
+   *
+   * @param out Array of at least two elements to receive {x, y} (Meters).
+   * @return False if the frame has no position solution.
+   */
+  public boolean getCameraPosition(double[] out) {
+    double[] dimensions = getCamTran();
+    if (dimensions.length < 3) return false;
+
+    // Camtran z points into the target, and x to the right as seen from the camera, which is to
+    // the left as seen from the target looking out into the field.
+    double ahead = -Units.inchesToMeters(dimensions[2]);
+    double left = Units.inchesToMeters(dimensions[0]);
+    double cos = goalPose.getRotation().getCos();
+    double sin = goalPose.getRotation().getSin();
+    out[0] = goalPose.getX() + ahead * cos - left * sin;
+    out[1] = goalPose.getY() + ahead * sin + left * cos;
+    return true;
   }
 
   public CameraMode getCameraMode() throws Exception {
@@ -2,16 +2,24 @@ package frc.robot.subsystems.sensors;
 
 import com.ctre.phoenix.sensors.PigeonIMU;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import frc.robot.Robot;
 
 public class Pigeon extends PigeonIMU {
+  private final double[] rates = new double[3];
+
+  // Heading and rate reported in simulation, where there is no IMU to read.
+  private double simDegrees = 0.0;
+  private double simRate = 0.0;
+
   public Pigeon(int CANid) {
     super(CANid);
     super.configFactoryDefault();
     reset();
   }
 
-  public void reset(double angle) {
+  public synchronized void reset(double angle) {
     this.setFusedHeading(angle);
+    simDegrees = angle;
   }
 
   public void reset() {
@@ -19,6 +27,34 @@ public class Pigeon extends PigeonIMU {
   }
 
   public Rotation2d get() {
-    return Rotation2d.fromDegrees((super.getFusedHeading() + 180.0) % 360.0 - 180.0);
+    return Rotation2d.fromDegrees(getDegrees());
+  }
+
+  public synchronized double getDegrees() {
+    double heading = Robot.isSimulation() ? simDegrees : super.getFusedHeading();
+    return (heading + 180.0) % 360.0 - 180.0;
+  }
+
+  /**
+   * Returns the yaw rate measured by the gyro.
+   *
+   * @return Rate of rotation, positive counter-clockwise (Degrees per Second).
+   */
+  public synchronized double getRate() {
+    if (Robot.isSimulation()) return simRate;
+
+    getRawGyro(rates);
+    return rates[2];
+  }
+
+  /**
+   * Turn the simulated IMU.
+   *
+   * @param degrees Change in heading since the last call (Degrees).
+   * @param rate Current rate of rotation (Degrees per Second).
+   */
+  public synchronized void addSimRotation(double degrees, double rate) {
+    simDegrees += degrees;
+    simRate = rate;
   }
 }
@@ -5,7 +5,6 @@
 package frc.robot.subsystems.sensors;
 
 import edu.wpi.first.wpilibj.Notifier;
-import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
@@ -13,6 +12,7 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.subsystems.sensors.Limelight.CameraMode;
 import frc.robot.subsystems.sensors.Limelight.LedMode;
+import frc.robot.utils.FieldTransform;
 
 /** Class to control the various sensors on Bahkar. */
 public class Sensors extends SubsystemBase {
@@ -28,6 +28,15 @@ public class Sensors extends SubsystemBase {
 
   private Notifier shuffle = new Notifier(() -> updateShuffleboard());
 
+  /** Alliance transform the Limelight's goal pose was last set for. */
+  private FieldTransform goalTransform = null;
+  /** Angle of the turret, as last reported by it (Degrees). */
+  private volatile double turretDegrees = 0.0;
+  /** Robot position from the last vision frame, for the dashboard (Meters). */
+  private volatile double visionX = Double.NaN;
+
+  private volatile double visionY = Double.NaN;
+
   /** Creates a new Sensors. */
   private Sensors() {
     CommandScheduler.getInstance().registerSubsystem(this);
@@ -49,7 +58,7 @@ public class Sensors extends SubsystemBase {
   }
 
   private void updateShuffleboard() {
-    SmartDashboard.putString("Vision Pose", getRobotPose().toString());
+    SmartDashboard.putString("Vision Pose", String.format("(%.2f, %.2f)", visionX, visionY));
     SmartDashboard.putNumber("Vision Distance", getDistance());
     SmartDashboard.putNumber("Pigeon Rotation", getRotation().getDegrees());
   }
@@ -85,12 +94,85 @@ public class Sensors extends SubsystemBase {
     return pigeon.get();
   }
 
-  public Pose2d getRobotPose() {
-    try {
-      return new Pose2d(limelight.getPose2d().getTranslation(), getRotation());
-    } catch (Exception e) {
-      return new Pose2d();
+  /**
+   * Returns the heading of the robot without allocating a {@link Rotation2d}.
+   *
+   * @return Heading (Degrees).
+   */
+  public double getRotationDegrees() {
+    return pigeon.getDegrees();
+  }
+
+  /**
+   * Returns how fast the robot is turning, as measured by the gyro.
+   *
+   * @return Yaw rate, positive counter-clockwise (Degrees per Second).
+   */
+  public double getRotationRate() {
+    return pigeon.getRate();
+  }
+
+  /**
+   * Turn the simulated Pigeon. Only meaningful in simulation.
+   *
+   * @param degrees Change in heading since the last call (Degrees).
+   * @param rate Current rate of rotation (Degrees per Second).
+   */
+  public void addSimRotation(double degrees, double rate) {
+    pigeon.addSimRotation(degrees, rate);
+  }
+
+  /**
+   * Set the angle of the turret the Limelight is mounted on. The turret reports it every loop.
+   *
+   * @param degrees Angle from the front of the robot, counter-clockwise (Degrees).
+   */
+  public void setTurretAngle(double degrees) {
+    turretDegrees = degrees;
+  }
+
+  /**
+   * Get the field position of the center of the robot seen by the Limelight, for fusing into
+   * odometry. The camera's position is found from the goal on the robot's alliance side, then moved
+   * back through the turret to the center of the robot.
+   *
+   * @param heading Field heading of the robot when the frame was captured, counter-clockwise
+   *     (Radians).
+   * @param out Array of at least two elements to receive {x, y} (Meters).
+   * @return False if there is no target or the frame has no position solution.
+   */
+  public boolean getVisionPosition(double heading, double[] out) {
+    FieldTransform transform = FieldTransform.forAlliance();
+    if (transform != goalTransform) {
+      goalTransform = transform;
+      limelight.setGoalPose(transform.apply(Constants.field.GOAL_POSE));
     }
+    if (!hasTarget() || !limelight.getCameraPosition(out)) return false;
+
+    // Offset of the camera from the center of the robot, in the robot's frame.
+    double turret = Math.toRadians(turretDegrees);
+    double x =
+        Constants.turret.LOCATION.getX() + Constants.turret.LIMELIGHT_RADIUS * Math.cos(turret);
+    double y =
+        Constants.turret.LOCATION.getY() + Constants.turret.LIMELIGHT_RADIUS * Math.sin(turret);
+
+    double cos = Math.cos(heading);
+    double sin = Math.sin(heading);
+    out[0] -= x * cos - y * sin;
+    out[1] -= x * sin + y * cos;
+    visionX = out[0];
+    visionY = out[1];
+    return true;
+  }
+
+  /**
+   * Returns the time the latest Limelight image was captured, for looking up the robot's pose when
+   * the vision data was valid. It only changes when a new frame arrives.
+   *
+   * @return FPGA time of capture (Seconds).
+   */
+  public double getVisionTimestamp() {
+    return limelight.getFrameTime();
   }
 
   public void setLEDMode(LedMode mode) {
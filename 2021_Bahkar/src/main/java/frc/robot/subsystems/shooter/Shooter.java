@@ -6,6 +6,8 @@ import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Constants;
+import frc.robot.Robot;
 
 public class Shooter extends SubsystemBase {
 
@@ -25,6 +27,10 @@ public class Shooter extends SubsystemBase {
 
   private Notifier shuffle = new Notifier(() -> updateShuffleboard());
 
+  // Wheel speed reported in simulation, which spins up toward the setpoint like a first order lag.
+  private volatile double simSetpoint = 0.0;
+  private volatile double simVelocity = 0.0;
+
   public Shooter() {
     SmartDashboard.putNumber("Set Shooter Velocity", 0.0);
     SmartDashboard.putNumber("Set Shooter Power", 0.0);
@@ -37,6 +43,12 @@ public class Shooter extends SubsystemBase {
   @Override
   public void periodic() {}
 
+  @Override
+  public void simulationPeriodic() {
+    double decay = Math.exp(-Constants.drive.CONTROL_PERIOD / Constants.shooter.sim.TIME_CONSTANT);
+    simVelocity = simSetpoint + (simVelocity - simSetpoint) * decay;
+  }
+
   private void updateShuffleboard() {
     SmartDashboard.putNumber("Shooter Speed", getVelocity());
     SmartDashboard.putNumber(
@@ -58,15 +70,18 @@ public class Shooter extends SubsystemBase {
   /** Sets shooter motors to a given percentage [-1.0, 1.0]. */
   public void setPercentage(double percent) {
     wheel.setPower(percent);
+    simSetpoint = percent * Constants.shooter.MAX_VELOCITY;
   }
 
   /** Sets shooter motors to a given velocity in rpm. */
   public void setVelocity(double velocity) {
     wheel.setVelocity(velocity);
+    simSetpoint = velocity;
   }
 
   /** Gets left shooter motor velocity in rpm. */
   public double getVelocity() {
+    if (Robot.isSimulation()) return simVelocity;
     return wheel.getVelocity();
   }
 
@@ -48,6 +48,10 @@ public class Turret extends SubsystemBase {
   // SmartDashboard thread.
   Notifier shuffle = new Notifier(() -> updateShuffleboard());
 
+  // Turret reported in simulation, which turns at a speed proportional to its power.
+  private volatile double simPower = 0.0;
+  private volatile double simPosition = 0.0;
+
   /** Creates a new {@link Turret}. For use only within the {@link Turret} class. */
   private Turret() {
     CommandScheduler.getInstance().registerSubsystem(this);
@@ -59,7 +63,15 @@ public class Turret extends SubsystemBase {
   }
 
   @Override
-  public void periodic() {}
+  public void periodic() {
+    // The Limelight turns with the turret, so vision needs its angle to find the robot.
+    sensors.setTurretAngle(getPosition());
+  }
+
+  @Override
+  public void simulationPeriodic() {
+    simPosition += simPower * Constants.turret.sim.MAX_VELOCITY * Constants.drive.CONTROL_PERIOD;
+  }
 
   /** Configures the turret motor controller. */
   private void motorInits() {
@@ -76,6 +88,7 @@ public class Turret extends SubsystemBase {
   /** Resets turret encoder position value to 0. */
   public void resetEncoders() {
     turretEncoder.setPosition(0.0);
+    simPosition = 0.0;
   }
 
   /** Refreshes the data on SmartDashboard. Should be called in a {@link Notifier}. */
@@ -100,9 +113,9 @@ public class Turret extends SubsystemBase {
    * @param percent The goal percentage to set the turret motor to.
    */
   public void set(double percent) {
-    if (getPosition() < Constants.turret.MIN_ANG && percent < 0.0) turretMotor.set(0.0);
-    else if (getPosition() > Constants.turret.MAX_ANG && percent > 0.0) turretMotor.set(0.0);
-    else turretMotor.set(percent);
+    if (getPosition() < Constants.turret.MIN_ANG && percent < 0.0) setMotor(0.0);
+    else if (getPosition() > Constants.turret.MAX_ANG && percent > 0.0) setMotor(0.0);
+    else setMotor(percent);
   }
 
   /**
@@ -112,7 +125,13 @@ public class Turret extends SubsystemBase {
    */
   public void setAngle(double angle) {
     angle /= Constants.turret.ENCODER_TO_DEGREES;
-    turretMotor.set(Robot.normalizePercentVolts(pid.calculate(turretEncoder.getPosition(), angle)));
+    double position = getPosition() / Constants.turret.ENCODER_TO_DEGREES;
+    setMotor(Robot.normalizePercentVolts(pid.calculate(position, angle)));
+  }
+
+  private void setMotor(double percent) {
+    turretMotor.set(percent);
+    simPower = percent;
   }
 
   /**
@@ -124,7 +143,7 @@ public class Turret extends SubsystemBase {
     double angle = sensors.getTX();
     double power =
         Robot.normalizePercentVolts(pid.calculate(angle, 0.0))
-            + Swerve.getInstance().getChassisSpeeds().omegaRadiansPerSecond / 10.0;
+            + Swerve.getInstance().getRotationalVelocity() / 10.0;
 
     set(cont ? power : 0.0);
   }
@@ -135,6 +154,7 @@ public class Turret extends SubsystemBase {
    * @return Degrees of the turret's current rotation.
    */
   public double getPosition() {
+    if (Robot.isSimulation()) return simPosition;
     return turretEncoder.getPosition() * Constants.turret.ENCODER_TO_DEGREES;
   }
 
@@ -144,6 +164,7 @@ public class Turret extends SubsystemBase {
    * @return Velocity of the turret in degrees per second.
    */
   public double getVelocity() {
+    if (Robot.isSimulation()) return simPower * Constants.turret.sim.MAX_VELOCITY;
     return turretEncoder.getVelocity() * Constants.turret.ENCODER_TO_DEGREES / 60.0;
   }
 
@@ -0,0 +1,264 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import frc.robot.Constants;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Autonomous routine read from a text file in the "autos" folder of the deploy directory, so paths
+ * and timing can be changed without touching code. Files are read once, and their paths are
+ * {@link LazyTrajectory LazyTrajectories} like the ones in {@link Trajectories}: they are
+ * precompiled into the {@link TrajectoryCache} and only generated on the robot if their content no
+ * longer matches the cached hash.
+ *
+ * <p>Each line is one step; blank lines and anything after a "#" are ignored.
+ *
+ * <pre>
+ * name &lt;chooser name&gt;          Name on the auto chooser, the file name if not given.
+ * start &lt;x&gt; &lt;y&gt; &lt;degrees&gt;      Reset the gyro and odometry to a pose.
+ * shoot &lt;seconds&gt;              Aim and fire for a time.
+ * speed &lt;m/s&gt; &lt;m/s^2&gt;          Velocity and acceleration limits for the paths after it.
+ * path [intake] [reversed] [heading &lt;degrees&gt;]
+ *   &lt;x&gt; &lt;y&gt; &lt;degrees&gt;            Waypoints, at least two.
+ * end                          Follow the path, intaking while driving if marked.
+ * turret &lt;degrees&gt;             Turn the turret to an angle.
+ * wait &lt;seconds&gt;               Do nothing for a time.
+ * stop                         Stop the intake, hopper, turret and shooter.
+ * </pre>
+ *
+ * <p>Paths are generated with the constraints of {@link Constants.drive.auto#CONFIG}, including
+ * the bar zone, under the limits set by "speed". The examples folder of the project has a sample
+ * routine.
+ */
+public final class AutoFile {
+
+  /** Folder of routine files in the deploy directory. */
+  public static final String DIRECTORY = "autos";
+  /** Extension of routine files. */
+  public static final String EXTENSION = ".auto";
+
+  /** Kind of step. */
+  public enum Type {
+    START,
+    SHOOT,
+    PATH,
+    TURRET,
+    WAIT,
+    STOP
+  }
+
+  /** One step of a routine. */
+  public static final class Step {
+    /** Kind of step. */
+    public final Type type;
+    /** Pose to reset to, for {@link Type#START}. */
+    public final Pose2d pose;
+    /** Seconds for {@link Type#SHOOT} and {@link Type#WAIT}, degrees for {@link Type#TURRET}. */
+    public final double value;
+    /** Path to follow, for {@link Type#PATH}. */
+    public final LazyTrajectory path;
+    /** Heading to hold while following the path. */
+    public final Rotation2d heading;
+    /** Whether to intake while following the path. */
+    public final boolean intake;
+
+    private Step(
+        Type type,
+        Pose2d pose,
+        double value,
+        LazyTrajectory path,
+        Rotation2d heading,
+        boolean intake) {
+      this.type = type;
+      this.pose = pose;
+      this.value = value;
+      this.path = path;
+      this.heading = heading;
+      this.intake = intake;
+    }
+  }
+
+  private static List<AutoFile> all = null;
+
+  private final String name;
+  private final List<Step> steps;
+
+  private AutoFile(String name, List<Step> steps) {
+    this.name = name;
+    this.steps = Collections.unmodifiableList(steps);
+  }
+
+  /** Returns the name to list the routine under. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the steps of the routine, in order. */
+  public List<Step> getSteps() {
+    return steps;
+  }
+
+  /**
+   * Returns every routine in the deploy directory, reading them the first time.
+   *
+   * @return Routines, in file name order.
+   */
+  public static synchronized List<AutoFile> getAll() {
+    if (all == null) load(new File(Filesystem.getDeployDirectory(), DIRECTORY));
+    return all;
+  }
+
+  /**
+   * Read routines from a folder instead of the deploy directory, for desktop tools. Files that do
+   * not parse are reported and skipped.
+   *
+   * @param directory Folder to read; if it does not exist there are no routines.
+   */
+  public static synchronized void load(File directory) {
+    List<AutoFile> files = new ArrayList<AutoFile>();
+    File[] found = directory.listFiles((dir, file) -> file.endsWith(EXTENSION));
+    if (found != null) {
+      Arrays.sort(found);
+      for (File file : found) {
+        try {
+          files.add(parse(file));
+        } catch (IOException | IllegalArgumentException e) {
+          DriverStation.reportWarning("Skipping " + file.getName() + ", " + e.getMessage(), false);
+        }
+      }
+    }
+    all = Collections.unmodifiableList(files);
+  }
+
+  private static AutoFile parse(File file) throws IOException {
+    String base = file.getName().substring(0, file.getName().length() - EXTENSION.length());
+    List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+
+    String name = base;
+    List<Step> steps = new ArrayList<Step>();
+    double maxVelocity = Constants.drive.auto.CONFIG.getMaxVelocity();
+    double maxAcceleration = Constants.drive.auto.CONFIG.getMaxAcceleration();
+
+    for (int i = 0; i < lines.size(); i++) {
+      String line = strip(lines.get(i));
+      if (line.isEmpty()) continue;
+      String[] words = line.split("\\s+");
+
+      try {
+        switch (words[0]) {
+          case "name":
+            name = line.substring(words[0].length()).trim();
+            break;
+          case "start":
+            expect(words, 4);
+            steps.add(new Step(Type.START, toPose(words, 1), 0.0, null, null, false));
+            break;
+          case "shoot":
+          case "wait":
+          case "turret":
+            expect(words, 2);
+            Type type = Type.valueOf(words[0].toUpperCase(Locale.ROOT));
+            steps.add(new Step(type, null, Double.parseDouble(words[1]), null, null, false));
+            break;
+          case "speed":
+            expect(words, 3);
+            maxVelocity = Double.parseDouble(words[1]);
+            maxAcceleration = Double.parseDouble(words[2]);
+            break;
+          case "stop":
+            expect(words, 1);
+            steps.add(new Step(Type.STOP, null, 0.0, null, null, false));
+            break;
+          case "path":
+            boolean intake = false;
+            boolean reversed = false;
+            Rotation2d heading = new Rotation2d();
+            for (int w = 1; w < words.length; w++) {
+              if (words[w].equals("intake")) {
+                intake = true;
+              } else if (words[w].equals("reversed")) {
+                reversed = true;
+              } else if (words[w].equals("heading") && w + 1 < words.length) {
+                heading = Rotation2d.fromDegrees(Double.parseDouble(words[++w]));
+              } else {
+                throw new IllegalArgumentException("unknown path option " + words[w]);
+              }
+            }
+
+            List<Pose2d> waypoints = new ArrayList<Pose2d>();
+            int start = i;
+            while (true) {
+              if (++i == lines.size()) throw new IllegalArgumentException("path has no end");
+              String[] point = strip(lines.get(i)).split("\\s+");
+              if (point[0].isEmpty()) continue;
+              if (point[0].equals("end")) break;
+              if (point.length != 3) {
+                throw new IllegalArgumentException("waypoints take x, y and degrees");
+              }
+              waypoints.add(toPose(point, 0));
+            }
+            if (waypoints.size() < 2) {
+              throw new IllegalArgumentException("path on line " + (start + 1) + " is too short");
+            }
+
+            TrajectoryConfig config =
+                new TrajectoryConfig(maxVelocity, maxAcceleration)
+                    .setReversed(reversed)
+                    .addConstraints(Constants.drive.auto.CONFIG.getConstraints());
+            LazyTrajectory path =
+                new LazyTrajectory(DIRECTORY + "." + base + "." + steps.size(), waypoints, config);
+            steps.add(new Step(Type.PATH, null, 0.0, path, heading, intake));
+            break;
+          default:
+            throw new IllegalArgumentException("unknown step " + words[0]);
+        }
+      } catch (NumberFormatException e) {
+        unregister(steps);
+        throw new IllegalArgumentException("line " + (i + 1) + ": bad number " + e.getMessage());
+      } catch (IllegalArgumentException e) {
+        unregister(steps);
+        throw new IllegalArgumentException("line " + (i + 1) + ": " + e.getMessage());
+      }
+    }
+
+    return new AutoFile(name, steps);
+  }
+
+  /** Stop building the paths of a file that is skipped, which registered as they were parsed. */
+  private static void unregister(List<Step> steps) {
+    for (Step step : steps) {
+      if (step.path != null) step.path.unregister();
+    }
+  }
+
+  private static String strip(String line) {
+    int comment = line.indexOf('#');
+    return (comment < 0 ? line : line.substring(0, comment)).trim();
+  }
+
+  private static void expect(String[] words, int count) {
+    if (words.length != count) {
+      throw new IllegalArgumentException(
+          words[0] + " takes " + (count - 1) + " values, not " + (words.length - 1));
+    }
+  }
+
+  private static Pose2d toPose(String[] words, int from) {
+    return new Pose2d(
+        Double.parseDouble(words[from]),
+        Double.parseDouble(words[from + 1]),
+        Rotation2d.fromDegrees(Double.parseDouble(words[from + 2])));
+  }
+}
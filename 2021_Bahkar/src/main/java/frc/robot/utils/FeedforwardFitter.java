@@ -0,0 +1,133 @@
+package frc.robot.utils;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Desktop tool that fits drive feedforward gains to the logs written by {@link
+ * frc.robot.commands.drive.Characterize}. Run with "./gradlew fitFeedforward -Plogs=a.csv,b.csv".
+ *
+ * <p>Fits voltage = kS * sign(velocity) + kV * velocity + kA * acceleration by least squares, with
+ * acceleration taken as the central difference of the logged velocity.
+ */
+public final class FeedforwardFitter {
+
+  /** Samples slower than this are dropped, since static friction is not yet broken (m/s). */
+  private static final double MIN_VELOCITY = 0.05;
+
+  private FeedforwardFitter() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: FeedforwardFitter <log.csv> [log.csv ...]");
+      return;
+    }
+
+    // Normal equations (X^T X) b = X^T y for the three regressors.
+    double[][] xtx = new double[3][3];
+    double[] xty = new double[3];
+    ArrayList<double[]> rows = new ArrayList<double[]>();
+
+    for (String path : args) {
+      ArrayList<double[]> samples = read(path);
+
+      for (int i = 1; i < samples.size() - 1; i++) {
+        double[] previous = samples.get(i - 1);
+        double[] sample = samples.get(i);
+        double[] next = samples.get(i + 1);
+
+        double velocity = sample[3];
+        if (Math.abs(velocity) < MIN_VELOCITY) continue;
+
+        double acceleration = (next[3] - previous[3]) / (next[0] - previous[0]);
+        double[] x = {Math.signum(velocity), velocity, acceleration};
+        double y = sample[1];
+
+        for (int r = 0; r < 3; r++) {
+          for (int c = 0; c < 3; c++) xtx[r][c] += x[r] * x[c];
+          xty[r] += x[r] * y;
+        }
+        rows.add(new double[] {x[0], x[1], x[2], y});
+      }
+    }
+
+    if (rows.size() < 3) {
+      System.out.println("Not enough moving samples to fit.");
+      return;
+    }
+
+    double[] gains = solve(xtx, xty);
+
+    // Coefficient of determination of the fit.
+    double mean = 0.0;
+    for (double[] row : rows) mean += row[3];
+    mean /= rows.size();
+    double residual = 0.0;
+    double total = 0.0;
+    for (double[] row : rows) {
+      double predicted = gains[0] * row[0] + gains[1] * row[1] + gains[2] * row[2];
+      residual += Math.pow(row[3] - predicted, 2.0);
+      total += Math.pow(row[3] - mean, 2.0);
+    }
+
+    System.out.printf("Samples: %d%n", rows.size());
+    System.out.printf("kS = %.4f V%n", gains[0]);
+    System.out.printf("kV = %.4f V/(m/s)%n", gains[1]);
+    System.out.printf("kA = %.4f V/(m/s^2)%n", gains[2]);
+    System.out.printf("r^2 = %.4f%n", 1.0 - residual / total);
+  }
+
+  /** Reads a characterization log as rows of {timestamp, voltage, position, velocity}. */
+  private static ArrayList<double[]> read(String path) throws IOException {
+    ArrayList<double[]> samples = new ArrayList<double[]>();
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+      String line = reader.readLine(); // Header.
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(",");
+        if (fields.length < 4) continue;
+
+        double[] sample = new double[4];
+        for (int i = 0; i < 4; i++) sample[i] = Double.parseDouble(fields[i].trim());
+        samples.add(sample);
+      }
+    }
+
+    return samples;
+  }
+
+  /** Solves a 3x3 linear system by Gaussian elimination with partial pivoting. */
+  private static double[] solve(double[][] a, double[] b) {
+    int n = b.length;
+    double[][] m = new double[n][n + 1];
+    for (int r = 0; r < n; r++) {
+      System.arraycopy(a[r], 0, m[r], 0, n);
+      m[r][n] = b[r];
+    }
+
+    for (int col = 0; col < n; col++) {
+      int pivot = col;
+      for (int r = col + 1; r < n; r++) {
+        if (Math.abs(m[r][col]) > Math.abs(m[pivot][col])) pivot = r;
+      }
+      double[] swap = m[col];
+      m[col] = m[pivot];
+      m[pivot] = swap;
+
+      for (int r = col + 1; r < n; r++) {
+        double factor = m[r][col] / m[col][col];
+        for (int c = col; c <= n; c++) m[r][c] -= factor * m[col][c];
+      }
+    }
+
+    double[] x = new double[n];
+    for (int r = n - 1; r >= 0; r--) {
+      double sum = m[r][n];
+      for (int c = r + 1; c < n; c++) sum -= m[r][c] * x[c];
+      x[r] = sum / m[r][r];
+    }
+    return x;
+  }
+}
@@ -0,0 +1,112 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.geometry.Translation2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import frc.robot.Constants;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rigid transform of the field, turning then moving poses, paths and whole trajectories from the
+ * frame they were drawn in to where they are driven. Rigid transforms keep distances, speeds and
+ * curvature, so a transformed trajectory is exactly the one generation would give for the
+ * transformed waypoints, without generating it again.
+ *
+ * <p>The field is the same after half a turn about its center, so {@link #MIRROR} carries any path
+ * drawn for {@link Constants.field#PATH_ALLIANCE} to the other alliance. Which one is in use is set
+ * from the Driver Station with {@link #setAlliance}.
+ */
+public final class FieldTransform {
+
+  /** Leaves everything where it is. */
+  public static final FieldTransform IDENTITY =
+      new FieldTransform(new Translation2d(), new Rotation2d());
+
+  /** Half a turn about the center of the field, to the other alliance's side. */
+  public static final FieldTransform MIRROR =
+      new FieldTransform(
+          new Translation2d(Constants.field.LENGTH, Constants.field.WIDTH),
+          new Rotation2d(Math.PI));
+
+  private static volatile boolean mirrored = false;
+
+  private final Translation2d translation;
+  private final Rotation2d rotation;
+
+  /**
+   * Constructs a new FieldTransform.
+   *
+   * @param translation Distance to move by, after turning (Meters).
+   * @param rotation Angle to turn by, about the origin of the field.
+   */
+  public FieldTransform(Translation2d translation, Rotation2d rotation) {
+    this.translation = translation;
+    this.rotation = rotation;
+  }
+
+  /**
+   * Set the alliance the robot is on, which decides whether paths are mirrored.
+   *
+   * @param alliance Alliance from the Driver Station; an invalid one leaves paths as drawn.
+   */
+  public static void setAlliance(Alliance alliance) {
+    mirrored = alliance != Alliance.Invalid && alliance != Constants.field.PATH_ALLIANCE;
+  }
+
+  /** Returns whether paths are being mirrored to the other alliance's side. */
+  public static boolean isMirrored() {
+    return mirrored;
+  }
+
+  /** Returns the transform from the frame paths are drawn in to the robot's alliance. */
+  public static FieldTransform forAlliance() {
+    return mirrored ? MIRROR : IDENTITY;
+  }
+
+  /**
+   * Returns the transform that applies this one, then another.
+   *
+   * @param next Transform to apply second.
+   * @return Combined transform.
+   */
+  public FieldTransform andThen(FieldTransform next) {
+    return new FieldTransform(
+        translation.rotateBy(next.rotation).plus(next.translation),
+        rotation.rotateBy(next.rotation));
+  }
+
+  /** Returns a point moved by this transform. */
+  public Translation2d apply(Translation2d point) {
+    return point.rotateBy(rotation).plus(translation);
+  }
+
+  /** Returns a pose moved by this transform, turned along with the field. */
+  public Pose2d apply(Pose2d pose) {
+    return new Pose2d(apply(pose.getTranslation()), pose.getRotation().rotateBy(rotation));
+  }
+
+  /** Returns waypoints moved by this transform. */
+  public List<Pose2d> apply(List<Pose2d> poses) {
+    List<Pose2d> moved = new ArrayList<Pose2d>(poses.size());
+    for (Pose2d pose : poses) moved.add(apply(pose));
+    return moved;
+  }
+
+  /** Returns a trajectory moved by this transform, with the same timing. */
+  public Trajectory apply(Trajectory trajectory) {
+    List<Trajectory.State> states = new ArrayList<Trajectory.State>();
+    for (Trajectory.State state : trajectory.getStates()) {
+      states.add(
+          new Trajectory.State(
+              state.timeSeconds,
+              state.velocityMetersPerSecond,
+              state.accelerationMetersPerSecondSq,
+              apply(state.poseMeters),
+              state.curvatureRadPerMeter));
+    }
+    return new Trajectory(states);
+  }
+}
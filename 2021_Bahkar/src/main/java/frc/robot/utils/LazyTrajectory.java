@@ -0,0 +1,179 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryGenerator;
+import edu.wpi.first.wpilibj.trajectory.constraint.TrajectoryConstraint;
+import frc.robot.Constants;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Handle to a trajectory that is only built when first needed. It is loaded from the {@link
+ * TrajectoryCache} in the deploy directory, and only generated on the robot if the cache is missing
+ * it or its waypoints or config have changed since, in which case it is kept for the cache to write
+ * back.
+ */
+public class LazyTrajectory {
+
+  private static final List<LazyTrajectory> all = new ArrayList<LazyTrajectory>();
+
+  private final String name;
+  private final List<Pose2d> waypoints;
+  private final TrajectoryConfig config;
+
+  /** Path this one mirrors, or null if it was drawn directly. */
+  private final LazyTrajectory source;
+  private LazyTrajectory mirror = null;
+
+  private List<Pose2d> resolved = null;
+  private Trajectory trajectory = null;
+
+  /**
+   * Constructs a new LazyTrajectory.
+   *
+   * @param name Unique name to store the trajectory under in the cache.
+   * @param waypoints Poses to pass through.
+   * @param config Constraints to generate with.
+   */
+  public LazyTrajectory(String name, List<Pose2d> waypoints, TrajectoryConfig config) {
+    this.name = name;
+    this.waypoints = waypoints;
+    this.config = config;
+    this.source = null;
+
+    synchronized (all) {
+      all.add(this);
+    }
+  }
+
+  /**
+   * Constructs the mirror of a path. It is not cached separately, since turning the original is
+   * faster than reading it back. Its config slows for the bar on its own side of the field, which
+   * matters when a path is replanned from it.
+   */
+  private LazyTrajectory(LazyTrajectory source) {
+    this.name = source.name + ".mirrored";
+    this.waypoints = FieldTransform.MIRROR.apply(source.waypoints);
+    this.config = mirrorConfig(source.config);
+    this.source = source;
+  }
+
+  /** Returns every trajectory constructed so far. */
+  public static List<LazyTrajectory> getAll() {
+    synchronized (all) {
+      return Collections.unmodifiableList(new ArrayList<LazyTrajectory>(all));
+    }
+  }
+
+  /**
+   * Stop building the trajectory in the background and writing it to the cache. For paths that are
+   * only driven as part of a {@link TrajectoryChain}, which has its own segments built instead. It
+   * can still be built on demand with {@link #get()}.
+   */
+  void unregister() {
+    synchronized (all) {
+      all.remove(this);
+    }
+  }
+
+  /** Returns the name the trajectory is cached under. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the poses the trajectory passes through, with any {@link WaypointOverrides}. */
+  public synchronized List<Pose2d> getWaypoints() {
+    if (resolved == null) {
+      resolved =
+          source != null
+              ? FieldTransform.MIRROR.apply(source.getWaypoints())
+              : WaypointOverrides.get(name, waypoints);
+    }
+    return resolved;
+  }
+
+  /** Returns the poses the trajectory was written with in code, before any overrides. */
+  public List<Pose2d> getOriginalWaypoints() {
+    return waypoints;
+  }
+
+  /** Returns the config the trajectory is generated with. */
+  public TrajectoryConfig getConfig() {
+    return config;
+  }
+
+  /** Returns the hash of the inputs the trajectory is generated from. */
+  public long getHash() {
+    return TrajectoryCache.hash(getWaypoints(), config);
+  }
+
+  /** Returns whether the trajectory has already been built. */
+  public synchronized boolean isReady() {
+    return trajectory != null;
+  }
+
+  /**
+   * Returns the trajectory, loading or generating it first if this is the first call.
+   *
+   * @return Trajectory through the waypoints.
+   */
+  public synchronized Trajectory get() {
+    if (trajectory == null && source != null) {
+      trajectory = FieldTransform.MIRROR.apply(source.get());
+    }
+    if (trajectory == null) {
+      long hash = getHash();
+      trajectory = TrajectoryCache.getInstance().load(name, hash);
+      if (trajectory == null) {
+        trajectory = generate();
+        TrajectoryCache.getInstance().store(name, hash, trajectory);
+      }
+    }
+    return trajectory;
+  }
+
+  /**
+   * Returns this path turned half way around the field, for the other alliance. The mirrored
+   * trajectory is made from this one's states rather than generated again.
+   *
+   * @return Mirrored path, the same object every call.
+   */
+  public synchronized LazyTrajectory mirrored() {
+    if (source != null) return source;
+    if (mirror == null) mirror = new LazyTrajectory(this);
+    return mirror;
+  }
+
+  /** Returns a copy of a config that can be changed without affecting the original. */
+  static TrajectoryConfig copyConfig(TrajectoryConfig config) {
+    return new TrajectoryConfig(config.getMaxVelocity(), config.getMaxAcceleration())
+        .setStartVelocity(config.getStartVelocity())
+        .setEndVelocity(config.getEndVelocity())
+        .setReversed(config.isReversed())
+        .addConstraints(config.getConstraints());
+  }
+
+  /** Returns a copy of a config for the other side of the field, with the bar zone moved over. */
+  static TrajectoryConfig mirrorConfig(TrajectoryConfig config) {
+    TrajectoryConfig mirrored =
+        new TrajectoryConfig(config.getMaxVelocity(), config.getMaxAcceleration())
+            .setStartVelocity(config.getStartVelocity())
+            .setEndVelocity(config.getEndVelocity())
+            .setReversed(config.isReversed());
+    for (TrajectoryConstraint constraint : config.getConstraints()) {
+      mirrored.addConstraint(
+          constraint == Constants.drive.auto.BAR_ZONE
+              ? Constants.drive.auto.MIRRORED_BAR_ZONE
+              : constraint);
+    }
+    return mirrored;
+  }
+
+  /** Generate the trajectory from its waypoints, ignoring the cache. */
+  Trajectory generate() {
+    return TrajectoryGenerator.generateTrajectory(getWaypoints(), config);
+  }
+}
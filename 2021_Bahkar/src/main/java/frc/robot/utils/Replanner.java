@@ -0,0 +1,171 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryGenerator;
+import frc.robot.Constants;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates new paths from wherever the robot actually is, on a worker thread. A follower that has
+ * been knocked off its path hands over a {@link Request} and keeps driving; when the new path is
+ * ready it is picked up with {@link #poll()}. Both directions go through atomic references, so the
+ * follower never waits on a lock or on spline generation.
+ *
+ * <p>Only the newest request matters. One that arrives while another is being generated replaces
+ * it in the queue, and results for anything but the follower's latest request should be dropped.
+ */
+public class Replanner {
+  private static Replanner instance = null;
+
+  public static synchronized Replanner getInstance() {
+    if (instance == null) instance = new Replanner();
+    return instance;
+  }
+
+  /** Path to plan, from the robot's current state through the waypoints it has not reached. */
+  public static final class Request {
+    final long id;
+    final double x;
+    final double y;
+    final double vx;
+    final double vy;
+    final List<Pose2d> waypoints;
+    final TrajectoryConfig config;
+
+    /**
+     * Constructs a new Request.
+     *
+     * @param id Number to match the result up with.
+     * @param x Current X position of the robot (Meters).
+     * @param y Current Y position of the robot (Meters).
+     * @param vx Current field relative X velocity of the robot (Meters per Second).
+     * @param vy Current field relative Y velocity of the robot (Meters per Second).
+     * @param waypoints Waypoints still ahead of the robot, ending with the end of the path.
+     * @param config Config the original path was generated with.
+     */
+    public Request(
+        long id,
+        double x,
+        double y,
+        double vx,
+        double vy,
+        List<Pose2d> waypoints,
+        TrajectoryConfig config) {
+      this.id = id;
+      this.x = x;
+      this.y = y;
+      this.vx = vx;
+      this.vy = vy;
+      this.waypoints = waypoints;
+      this.config = config;
+    }
+  }
+
+  /** Path planned for a {@link Request}. */
+  public static final class Result {
+    /** Number of the request this answers. */
+    public final long id;
+    /** Waypoints the path was generated through, starting at the robot. */
+    public final List<Pose2d> waypoints;
+    /** New path, which starts where the robot was when the request was made, or null if none. */
+    public final Trajectory trajectory;
+
+    Result(long id, List<Pose2d> waypoints, Trajectory trajectory) {
+      this.id = id;
+      this.waypoints = waypoints;
+      this.trajectory = trajectory;
+    }
+  }
+
+  private final AtomicReference<Request> request = new AtomicReference<Request>();
+  private final AtomicReference<Result> result = new AtomicReference<Result>();
+  private final Thread thread;
+
+  private Replanner() {
+    thread = new Thread(this::run, "Replanner");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.NORM_PRIORITY - 1);
+    thread.start();
+  }
+
+  /**
+   * Ask for a new path. Returns immediately; any request not yet started is replaced.
+   *
+   * @param next Path to plan.
+   */
+  public void request(Request next) {
+    request.set(next);
+    LockSupport.unpark(thread);
+  }
+
+  /** Returns the latest planned path, or null if there is none waiting. */
+  public Result poll() {
+    return result.getAndSet(null);
+  }
+
+  private void run() {
+    while (true) {
+      Request next = request.getAndSet(null);
+      if (next == null) {
+        LockSupport.park(this);
+        continue;
+      }
+
+      try {
+        List<Pose2d> waypoints = getWaypoints(next);
+        TrajectoryConfig config = LazyTrajectory.copyConfig(next.config);
+        config.setStartVelocity(
+            Math.min(Math.hypot(next.vx, next.vy), next.config.getMaxVelocity()));
+        Trajectory trajectory = TrajectoryGenerator.generateTrajectory(waypoints, config);
+        // The generator reports failures to the Driver Station and returns an empty trajectory
+        // at the origin rather than throwing. Keep following the old path instead of that one.
+        if (trajectory.getStates().size() < 2 || trajectory.getTotalTimeSeconds() <= 0.0) {
+          result.set(new Result(next.id, null, null));
+          continue;
+        }
+        result.set(new Result(next.id, waypoints, trajectory));
+      } catch (RuntimeException e) {
+        DriverStation.reportWarning("Could not replan path: " + e.getMessage(), false);
+        // Answer anyway, so the follower knows it can ask again.
+        result.set(new Result(next.id, null, null));
+      }
+    }
+  }
+
+  /**
+   * Returns the waypoints to plan through: the robot, headed the way it is moving, then the
+   * waypoints left. Waypoints the robot is nearly on top of are dropped, since a spline cannot turn
+   * that sharply.
+   */
+  private static List<Pose2d> getWaypoints(Request next) {
+    List<Pose2d> remaining = new ArrayList<Pose2d>();
+    int last = next.waypoints.size() - 1;
+    for (int i = 0; i < last; i++) {
+      Pose2d waypoint = next.waypoints.get(i);
+      double distance = Math.hypot(waypoint.getX() - next.x, waypoint.getY() - next.y);
+      if (distance > Constants.drive.auto.REPLAN_MIN_DISTANCE) remaining.add(waypoint);
+    }
+    remaining.add(next.waypoints.get(last));
+
+    // When the robot is too slow for its velocity to say much, head at the next waypoint.
+    Pose2d target = remaining.get(0);
+    double direction =
+        Math.hypot(next.vx, next.vy) > Constants.drive.auto.REPLAN_MIN_SPEED
+            ? Math.atan2(next.vy, next.vx)
+            : Math.atan2(target.getY() - next.y, target.getX() - next.x);
+    // Reversed paths are generated with the robot backing along them.
+    if (next.config.isReversed()) direction += Math.PI;
+
+    List<Pose2d> waypoints = new ArrayList<Pose2d>();
+    waypoints.add(new Pose2d(next.x, next.y, new Rotation2d(direction)));
+    waypoints.addAll(remaining);
+    return waypoints;
+  }
+}
@@ -0,0 +1,250 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.smartdashboard.Field2d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records how far the robot is from the path while following it, one sample per loop. Errors are
+ * measured against the point on the path the robot should be at: along-track is how far ahead of
+ * it the robot is, cross-track how far to the left of its direction of travel, and heading how far
+ * the robot is turned past the heading it should hold.
+ *
+ * <p>As each segment of the path ends, its RMS and maximum errors are put on the dashboard, and the
+ * field shows the path as planned, the path as driven and where each segment was furthest off.
+ * When following ends, every sample is written to a CSV file in the "tracking" folder of the
+ * operating directory, to be fit with {@link TrackingTuner}.
+ */
+public class TrackingLog {
+
+  /** Columns of the log file. */
+  public static final String HEADER =
+      "time,segment,x,y,heading,goalX,goalY,goalHeading,commandX,commandY,commandOmega,"
+          + "along,cross,headingError";
+
+  private static final int COLUMNS = 14;
+  /** Samples between points of the path as driven on the field (Samples). */
+  private static final int TRAIL_STRIDE = 5;
+
+  private final Field2d field;
+
+  private String name = "path";
+  // Samples are kept in memory, one row of COLUMNS after another, and only written out at the end.
+  private double[] data = new double[0];
+  private int count = 0;
+
+  // Summaries of the segments so far, indexed by segment.
+  private int segments = 0;
+  private double[] alongRms = new double[0];
+  private double[] alongMax = new double[0];
+  private double[] crossRms = new double[0];
+  private double[] crossMax = new double[0];
+  private double[] headingRms = new double[0];
+  private double[] headingMax = new double[0];
+  private final List<Pose2d> worst = new ArrayList<Pose2d>();
+  /** First sample of the segment being followed. */
+  private int segmentStart = 0;
+
+  /**
+   * Constructs a new TrackingLog.
+   *
+   * @param field Field to draw the paths on.
+   */
+  public TrackingLog(Field2d field) {
+    this.field = field;
+  }
+
+  /**
+   * Start a new log, dropping the last one.
+   *
+   * @param name Name of the log file, without the extension.
+   * @param length Expected length of the path, to size the log up front (Seconds).
+   * @param period Time between samples (Seconds).
+   * @param segments Number of segments in the path.
+   */
+  public void start(String name, double length, double period, int segments) {
+    this.name = name;
+    int capacity = ((int) Math.ceil(length / period) + 1) * COLUMNS;
+    if (data.length < capacity) data = new double[capacity];
+    count = 0;
+    segmentStart = 0;
+
+    this.segments = 0;
+    alongRms = new double[segments];
+    alongMax = new double[segments];
+    crossRms = new double[segments];
+    crossMax = new double[segments];
+    headingRms = new double[segments];
+    headingMax = new double[segments];
+    worst.clear();
+
+    field.getObject("Actual").setPoses(new ArrayList<Pose2d>());
+    field.getObject("Worst").setPoses(worst);
+  }
+
+  /**
+   * Show the path the robot is following on the field, again whenever part of it is replanned.
+   *
+   * @param trajectories Segments of the path, in order.
+   */
+  public void setPlanned(List<Trajectory> trajectories) {
+    List<Pose2d> poses = new ArrayList<Pose2d>();
+    for (Trajectory trajectory : trajectories) {
+      for (Trajectory.State state : trajectory.getStates()) poses.add(state.poseMeters);
+    }
+    field.getObject("Planned").setPoses(poses);
+  }
+
+  /**
+   * Record one sample. Only writes to memory, so it is safe to call every loop.
+   *
+   * @param time Time since the path started (Seconds).
+   * @param segment Index of the segment being followed.
+   * @param goal Sampler holding the point on the path the robot should be at.
+   * @param goalHeading Heading the robot should be at (Radians).
+   * @param x X position of the robot (Meters).
+   * @param y Y position of the robot (Meters).
+   * @param heading Heading of the robot (Radians).
+   * @param commandX Field relative X velocity sent to the drivetrain (Meters per Second).
+   * @param commandY Field relative Y velocity sent to the drivetrain (Meters per Second).
+   * @param commandOmega Rate of turn sent to the drivetrain, in the sign of the heading (Radians
+   *     per Second).
+   */
+  public void record(
+      double time,
+      int segment,
+      TrajectorySampler goal,
+      double goalHeading,
+      double x,
+      double y,
+      double heading,
+      double commandX,
+      double commandY,
+      double commandOmega) {
+    if (count * COLUMNS == data.length) data = Arrays.copyOf(data, 2 * data.length + COLUMNS);
+
+    double dx = x - goal.getX();
+    double dy = y - goal.getY();
+    double cos = Math.cos(goal.getHeading());
+    double sin = Math.sin(goal.getHeading());
+
+    int i = count * COLUMNS;
+    data[i] = time;
+    data[i + 1] = segment;
+    data[i + 2] = x;
+    data[i + 3] = y;
+    data[i + 4] = heading;
+    data[i + 5] = goal.getX();
+    data[i + 6] = goal.getY();
+    data[i + 7] = goalHeading;
+    data[i + 8] = commandX;
+    data[i + 9] = commandY;
+    data[i + 10] = commandOmega;
+    data[i + 11] = dx * cos + dy * sin;
+    data[i + 12] = -dx * sin + dy * cos;
+    data[i + 13] = Math.IEEEremainder(heading - goalHeading, 2.0 * Math.PI);
+    count++;
+  }
+
+  /** Summarize the samples since the last segment ended and show them on the dashboard. */
+  public void endSegment() {
+    if (segments == alongRms.length) return;
+    int s = segments++;
+
+    double along = 0.0;
+    double cross = 0.0;
+    double turn = 0.0;
+    double furthest = -1.0;
+    int worstSample = -1;
+    for (int k = segmentStart; k < count; k++) {
+      int i = k * COLUMNS;
+      double a = data[i + 11];
+      double c = data[i + 12];
+      double h = data[i + 13];
+      along += a * a;
+      cross += c * c;
+      turn += h * h;
+      alongMax[s] = Math.max(alongMax[s], Math.abs(a));
+      crossMax[s] = Math.max(crossMax[s], Math.abs(c));
+      headingMax[s] = Math.max(headingMax[s], Math.toDegrees(Math.abs(h)));
+      if (a * a + c * c > furthest) {
+        furthest = a * a + c * c;
+        worstSample = k;
+      }
+    }
+
+    int samples = count - segmentStart;
+    if (samples > 0) {
+      alongRms[s] = Math.sqrt(along / samples);
+      crossRms[s] = Math.sqrt(cross / samples);
+      headingRms[s] = Math.toDegrees(Math.sqrt(turn / samples));
+    }
+    if (worstSample >= 0) worst.add(getPose(worstSample));
+    segmentStart = count;
+
+    publish();
+  }
+
+  /** End the log, summarizing the last segment and writing the samples out in the background. */
+  public void finish() {
+    endSegment();
+
+    File directory = new File(Filesystem.getOperatingDirectory(), "tracking");
+    File file = new File(directory, name + ".csv");
+    double[] samples = Arrays.copyOf(data, count * COLUMNS);
+
+    Thread thread = new Thread(() -> write(directory, file, samples), "TrackingLog");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  private void publish() {
+    SmartDashboard.putNumberArray("Path Along RMS", Arrays.copyOf(alongRms, segments));
+    SmartDashboard.putNumberArray("Path Along Max", Arrays.copyOf(alongMax, segments));
+    SmartDashboard.putNumberArray("Path Cross RMS", Arrays.copyOf(crossRms, segments));
+    SmartDashboard.putNumberArray("Path Cross Max", Arrays.copyOf(crossMax, segments));
+    SmartDashboard.putNumberArray("Path Heading RMS", Arrays.copyOf(headingRms, segments));
+    SmartDashboard.putNumberArray("Path Heading Max", Arrays.copyOf(headingMax, segments));
+
+    List<Pose2d> trail = new ArrayList<Pose2d>();
+    for (int k = 0; k < count; k += TRAIL_STRIDE) trail.add(getPose(k));
+    if (count > 0) trail.add(getPose(count - 1));
+    field.getObject("Actual").setPoses(trail);
+    field.getObject("Worst").setPoses(worst);
+  }
+
+  private Pose2d getPose(int sample) {
+    int i = sample * COLUMNS;
+    return new Pose2d(data[i + 2], data[i + 3], new Rotation2d(data[i + 4]));
+  }
+
+  private static void write(File directory, File file, double[] samples) {
+    directory.mkdirs();
+    try (PrintWriter writer = new PrintWriter(file)) {
+      writer.println(HEADER);
+      StringBuilder line = new StringBuilder();
+      for (int i = 0; i < samples.length; i += COLUMNS) {
+        line.setLength(0);
+        for (int c = 0; c < COLUMNS; c++) {
+          if (c > 0) line.append(',');
+          if (c == 1) line.append((int) samples[i + c]);
+          else line.append(samples[i + c]);
+        }
+        writer.println(line);
+      }
+    } catch (IOException e) {
+      DriverStation.reportError("Could not write " + file + ": " + e.getMessage(), false);
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package frc.robot.utils;
+
+import frc.robot.Constants;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Desktop tool that fits the path following gains in {@link Constants.drive.xPID}, {@link
+ * Constants.drive.yPID} and {@link Constants.drive.thetaPID} to the logs written by {@link
+ * TrackingLog}. Run with "./gradlew tuneTracking -Plogs=a.csv,b.csv", with logs pulled from
+ * /home/lvuser/tracking on the robot.
+ *
+ * <p>For each axis, the drivetrain's response to the velocity it is sent is fit as a first order
+ * lag with dead time, v[k] = a * v[k-1] + b * u[k-d], by least squares for each delay d and keeping
+ * the best. A proportional controller on position around that lag is second order, and the gain
+ * suggested gives it {@link #DAMPING}, treating the dead time as more lag. The tracking errors in
+ * the logs are summarized too, to compare runs before and after a change.
+ */
+public final class TrackingTuner {
+
+  /** Damping ratio to tune the position loops for. */
+  private static final double DAMPING = 0.7;
+  /** Longest dead time tried, in samples. */
+  private static final int MAX_DELAY = 5;
+
+  private TrackingTuner() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: TrackingTuner <log.csv> [log.csv ...]");
+      return;
+    }
+
+    List<double[][]> logs = new ArrayList<double[][]>();
+    for (String path : args) {
+      double[][] log = read(path);
+      logs.add(log);
+      summarize(path, log);
+    }
+    System.out.println();
+
+    fit(logs, "x", "x", "commandX", false, Constants.drive.xPID.kP);
+    fit(logs, "y", "y", "commandY", false, Constants.drive.yPID.kP);
+    fit(logs, "theta", "heading", "commandOmega", true, Constants.drive.thetaPID.kP);
+  }
+
+  /** Prints the RMS and maximum tracking errors of one log. */
+  private static void summarize(String path, double[][] log) {
+    double[] along = log[column("along")];
+    double[] cross = log[column("cross")];
+    double[] heading = log[column("headingError")];
+
+    System.out.printf(
+        "%s: %d samples, along %.3f m RMS / %.3f m max, cross %.3f m RMS / %.3f m max, "
+            + "heading %.1f deg RMS / %.1f deg max%n",
+        path,
+        along.length,
+        rms(along),
+        max(along),
+        rms(cross),
+        max(cross),
+        Math.toDegrees(rms(heading)),
+        Math.toDegrees(max(heading)));
+  }
+
+  /**
+   * Fits the response of one axis and prints the gain it suggests.
+   *
+   * @param logs Logs to fit, as columns.
+   * @param axis Name of the axis to print.
+   * @param position Column of the measured position.
+   * @param command Column of the velocity sent.
+   * @param angle Whether the position is an angle, to be unwrapped.
+   * @param current Gain in use now, to print alongside.
+   */
+  private static void fit(
+      List<double[][]> logs,
+      String axis,
+      String position,
+      String command,
+      boolean angle,
+      double current) {
+    // Normal equations for each delay, with the sum of squares of the measured velocity.
+    double[][][] xtx = new double[MAX_DELAY + 1][2][2];
+    double[][] xty = new double[MAX_DELAY + 1][2];
+    double[] yty = new double[MAX_DELAY + 1];
+    double[] ysum = new double[MAX_DELAY + 1];
+    int[] rows = new int[MAX_DELAY + 1];
+    double period = 0.0;
+    int periods = 0;
+
+    for (double[][] log : logs) {
+      double[] time = log[column("time")];
+      double[] p = log[column(position)];
+      double[] u = log[column(command)];
+      if (time.length < 2) continue;
+
+      // Velocity over each period, from the position at either end of it.
+      double[] v = new double[time.length - 1];
+      boolean[] valid = new boolean[v.length];
+      for (int k = 0; k < v.length; k++) {
+        double dt = time[k + 1] - time[k];
+        double dp = p[k + 1] - p[k];
+        if (angle) dp = Math.IEEEremainder(dp, 2.0 * Math.PI);
+        valid[k] = dt > 0.0;
+        if (!valid[k]) continue;
+        v[k] = dp / dt;
+        period += dt;
+        periods++;
+      }
+
+      for (int d = 0; d <= MAX_DELAY; d++) {
+        for (int k = Math.max(1, d); k < v.length; k++) {
+          if (!valid[k] || !valid[k - 1]) continue;
+          double[] x = {v[k - 1], u[k - d]};
+          for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 2; c++) xtx[d][r][c] += x[r] * x[c];
+            xty[d][r] += x[r] * v[k];
+          }
+          yty[d] += v[k] * v[k];
+          ysum[d] += v[k];
+          rows[d]++;
+        }
+      }
+    }
+
+    // Keep the delay that explains the most of the measured velocity.
+    int best = -1;
+    double bestResidual = Double.POSITIVE_INFINITY;
+    double[] coefficients = null;
+    for (int d = 0; d <= MAX_DELAY; d++) {
+      if (rows[d] < 3) continue;
+      double det = xtx[d][0][0] * xtx[d][1][1] - xtx[d][0][1] * xtx[d][1][0];
+      if (Math.abs(det) < 1e-12) continue;
+      double a = (xty[d][0] * xtx[d][1][1] - xty[d][1] * xtx[d][0][1]) / det;
+      double b = (xtx[d][0][0] * xty[d][1] - xtx[d][1][0] * xty[d][0]) / det;
+
+      // Sum of squared residuals, expanded from the normal equations.
+      double residual =
+          yty[d]
+              - 2.0 * (a * xty[d][0] + b * xty[d][1])
+              + a * a * xtx[d][0][0]
+              + 2.0 * a * b * xtx[d][0][1]
+              + b * b * xtx[d][1][1];
+      if (residual < bestResidual) {
+        best = d;
+        bestResidual = residual;
+        coefficients = new double[] {a, b};
+      }
+    }
+
+    System.out.println(axis + ":");
+    if (best < 0) {
+      System.out.println("  Not enough moving samples to fit.");
+      return;
+    }
+
+    double a = coefficients[0];
+    double b = coefficients[1];
+    double mean = ysum[best] / rows[best];
+    double total = yty[best] - rows[best] * mean * mean;
+    System.out.printf("  Samples: %d%n", rows[best]);
+    System.out.printf("  r^2 = %.4f%n", 1.0 - bestResidual / total);
+    if (a <= 0.0 || a >= 1.0 || b <= 0.0) {
+      System.out.printf("  Response does not look like a lag (a = %.4f, b = %.4f).%n", a, b);
+      return;
+    }
+
+    period /= periods;
+    double timeConstant = -period / Math.log(a);
+    double gain = b / (1.0 - a);
+    double delay = best * period;
+    double kP = 1.0 / (4.0 * DAMPING * DAMPING * gain * (timeConstant + delay));
+
+    System.out.printf("  Time constant = %.4f s%n", timeConstant);
+    System.out.printf("  Dead time = %.4f s%n", delay);
+    System.out.printf("  Steady state gain = %.4f%n", gain);
+    System.out.printf("  kP = %.4f (currently %.4f)%n", kP, current);
+  }
+
+  /** Returns the index of a column of {@link TrackingLog#HEADER}. */
+  private static int column(String name) {
+    int index = Arrays.asList(TrackingLog.HEADER.split(",")).indexOf(name);
+    if (index < 0) throw new IllegalArgumentException("No column " + name);
+    return index;
+  }
+
+  /** Reads a tracking log as columns, in the order of {@link TrackingLog#HEADER}. */
+  private static double[][] read(String path) throws IOException {
+    int columns = TrackingLog.HEADER.split(",").length;
+    ArrayList<double[]> samples = new ArrayList<double[]>();
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+      String line = reader.readLine(); // Header.
+      if (line == null || !line.equals(TrackingLog.HEADER)) {
+        throw new IOException(path + " is not a tracking log");
+      }
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(",");
+        if (fields.length < columns) continue;
+
+        double[] sample = new double[columns];
+        for (int i = 0; i < columns; i++) sample[i] = Double.parseDouble(fields[i].trim());
+        samples.add(sample);
+      }
+    }
+
+    double[][] log = new double[columns][samples.size()];
+    for (int k = 0; k < samples.size(); k++) {
+      for (int i = 0; i < columns; i++) log[i][k] = samples.get(k)[i];
+    }
+    return log;
+  }
+
+  private static double rms(double[] values) {
+    double sum = 0.0;
+    for (double value : values) sum += value * value;
+    return values.length > 0 ? Math.sqrt(sum / values.length) : 0.0;
+  }
+
+  private static double max(double[] values) {
+    double max = 0.0;
+    for (double value : values) max = Math.max(max, Math.abs(value));
+    return max;
+  }
+}
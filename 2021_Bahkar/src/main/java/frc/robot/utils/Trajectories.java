@@ -2,21 +2,35 @@ package frc.robot.utils;
 
 import edu.wpi.first.wpilibj.geometry.Pose2d;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
-import edu.wpi.first.wpilibj.trajectory.Trajectory;
-import edu.wpi.first.wpilibj.trajectory.TrajectoryGenerator;
 import frc.robot.Constants;
 import java.util.List;
 
+/**
+ * Paths for the autonomous routines. Each is a {@link LazyTrajectory}, so nothing is generated when
+ * this class loads; the paths come out of the precompiled {@link TrajectoryCache} when first used.
+ */
 public final class Trajectories {
 
+  /** Load every group of paths, registering each of them with {@link LazyTrajectory#getAll()}. */
+  public static void loadAll() {
+    for (Class<?> group : Trajectories.class.getDeclaredClasses()) {
+      try {
+        Class.forName(group.getName(), true, Trajectories.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
   public static class trench6M {
 
     // public static final Pose2d POSE1 = new Pose2d(3.95, 3.145003 * 1.79571303587, new
     // Rotation2d());
     public static final Pose2d POSE1 = new Pose2d(3.95, 5.6475228849, new Rotation2d());
 
-    public static final Trajectory DOWN_TRENCH =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory DOWN_TRENCH =
+        new LazyTrajectory(
+            "trench6M.DOWN_TRENCH",
             List.of(
                 POSE1,
                 new Pose2d(5.576245, 7.3, new Rotation2d()),
@@ -25,8 +39,9 @@ public final class Trajectories {
 
     public static final Pose2d POSE2 = new Pose2d(7.713587, 7.5, new Rotation2d(Math.PI));
 
-    public static final Trajectory TO_SHOOT =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TO_SHOOT =
+        new LazyTrajectory(
+            "trench6M.TO_SHOOT",
             List.of(POSE2, new Pose2d(POSE1.getTranslation(), new Rotation2d(Math.PI))),
             Constants.drive.auto.CONFIG);
   }
@@ -38,8 +53,9 @@ public final class Trajectories {
 
     public static final Pose2d POSE1 = new Pose2d(3.95, 3.145003 * 1.79571303587, new Rotation2d());
 
-    public static final Trajectory DOWN_TRENCH =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory DOWN_TRENCH =
+        new LazyTrajectory(
+            "trench8M.DOWN_TRENCH",
             List.of(
                 POSE1,
                 new Pose2d(3.262223 * 1.74759405074, 3.999829 * 1.79571303587, new Rotation2d()),
@@ -55,8 +71,9 @@ public final class Trajectories {
             3.999829 * 1.79571303587 + yAdj,
             new Rotation2d());
 
-    public static final Trajectory BALL1 =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory BALL1 =
+        new LazyTrajectory(
+            "trench8M.BALL1",
             List.of(
                 POSE2,
                 new Pose2d(
@@ -71,8 +88,9 @@ public final class Trajectories {
             3.950242 * 1.79571303587 + yAdj,
             new Rotation2d(Math.PI / 2.0));
 
-    public static final Trajectory BALL2 =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory BALL2 =
+        new LazyTrajectory(
+            "trench8M.BALL2",
             List.of(
                 POSE3,
                 new Pose2d(
@@ -81,14 +99,19 @@ public final class Trajectories {
                     new Rotation2d(Math.PI / 2.0))),
             Constants.drive.auto.CONFIG);
 
+    /** Down the trench and through both balls, without stopping where the paths join. */
+    public static final TrajectoryChain COLLECT =
+        new TrajectoryChain("trench8M.COLLECT", DOWN_TRENCH, BALL1, BALL2);
+
     public static final Pose2d POSE4 =
         new Pose2d(
             4.980190 * 1.74759405074 + xAdj,
             4.045270 * 1.79571303587 + yAdj,
             new Rotation2d(Math.PI));
 
-    public static final Trajectory TO_SHOOT =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TO_SHOOT =
+        new LazyTrajectory(
+            "trench8M.TO_SHOOT",
             List.of(
                 POSE4,
                 new Pose2d(
@@ -103,8 +126,9 @@ public final class Trajectories {
 
     public static final Pose2d POSE1 = new Pose2d(3.95, 7.3, new Rotation2d());
 
-    public static final Trajectory DOWN_TRENCH =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory DOWN_TRENCH =
+        new LazyTrajectory(
+            "trench6L.DOWN_TRENCH",
             List.of(
                 POSE1,
                 new Pose2d(5.576245, 7.3, new Rotation2d()),
@@ -113,8 +137,9 @@ public final class Trajectories {
 
     public static final Pose2d POSE2 = new Pose2d(7.713587, 7.5, new Rotation2d(Math.PI));
 
-    public static final Trajectory TO_SHOOT =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TO_SHOOT =
+        new LazyTrajectory(
+            "trench6L.TO_SHOOT",
             List.of(POSE2, new Pose2d(POSE1.getTranslation(), new Rotation2d(Math.PI))),
             Constants.drive.auto.CONFIG);
   }
@@ -125,8 +150,9 @@ public final class Trajectories {
     private static final double xAdj = 0.1;
     private static final double yAdj = 0.1;
 
-    public static final Trajectory DOWN_TRENCH =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory DOWN_TRENCH =
+        new LazyTrajectory(
+            "trench8L.DOWN_TRENCH",
             List.of(
                 POSE1,
                 new Pose2d(3.262223 * 1.74759405074, 3.999829 * 1.79571303587, new Rotation2d()),
@@ -137,8 +163,9 @@ public final class Trajectories {
     public static final Pose2d POSE2 =
         new Pose2d(4.549337 * 1.74759405074, 3.999829 * 1.79571303587 + xAdj, new Rotation2d());
 
-    public static final Trajectory BALL1 =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory BALL1 =
+        new LazyTrajectory(
+            "trench8L.BALL1",
             List.of(
                 POSE2,
                 new Pose2d(
@@ -153,8 +180,9 @@ public final class Trajectories {
             3.950242 * 1.79571303587 + xAdj,
             new Rotation2d(Math.PI / 2.0));
 
-    public static final Trajectory BALL2 =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory BALL2 =
+        new LazyTrajectory(
+            "trench8L.BALL2",
             List.of(
                 POSE3,
                 new Pose2d(
@@ -163,14 +191,19 @@ public final class Trajectories {
                     new Rotation2d(Math.PI / 2.0))),
             Constants.drive.auto.CONFIG);
 
+    /** Down the trench and through both balls, without stopping where the paths join. */
+    public static final TrajectoryChain COLLECT =
+        new TrajectoryChain("trench8L.COLLECT", DOWN_TRENCH, BALL1, BALL2);
+
     public static final Pose2d POSE4 =
         new Pose2d(
             4.980190 * 1.74759405074 + yAdj,
             4.045270 * 1.79571303587 + xAdj,
             new Rotation2d(Math.PI));
 
-    public static final Trajectory TO_SHOOT =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TO_SHOOT =
+        new LazyTrajectory(
+            "trench8L.TO_SHOOT",
             List.of(
                 POSE4,
                 new Pose2d(
@@ -182,8 +215,9 @@ public final class Trajectories {
   public static final class WheelTenBall {
     public static final Pose2d POSE1 = new Pose2d(3.95, 0.541844 * 1.79571303587, new Rotation2d());
 
-    public static final Trajectory TO_WHEEL =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TO_WHEEL =
+        new LazyTrajectory(
+            "WheelTenBall.TO_WHEEL",
             List.of(
                 POSE1,
                 new Pose2d(3.390185 * 1.74759405074, 0.568928 * 1.79571303587, new Rotation2d())),
@@ -193,8 +227,9 @@ public final class Trajectories {
         new Pose2d(
             3.390185 * 1.74759405074, 0.568928 * 1.79571303587, new Rotation2d(Math.PI / 2.0));
 
-    public static final Trajectory FIRST_SHOT =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory FIRST_SHOT =
+        new LazyTrajectory(
+            "WheelTenBall.FIRST_SHOT",
             List.of(
                 POSE2,
                 new Pose2d(
@@ -211,8 +246,9 @@ public final class Trajectories {
         new Pose2d(
             3.184118 * 1.74759405074, 2.051534 * 1.79571303587, Rotation2d.fromDegrees(21.923073));
 
-    public static final Trajectory TURN_IN =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TURN_IN =
+        new LazyTrajectory(
+            "WheelTenBall.TURN_IN",
             List.of(
                 POSE3,
                 new Pose2d(
@@ -237,8 +273,9 @@ public final class Trajectories {
         new Pose2d(
             3.881773 * 1.74759405074, 2.718925 * 1.79571303587, Rotation2d.fromDegrees(60.531868));
 
-    public static final Trajectory SECOND_SHOOT =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory SECOND_SHOOT =
+        new LazyTrajectory(
+            "WheelTenBall.SECOND_SHOOT",
             List.of(
                 POSE4,
                 new Pose2d(
@@ -250,6 +287,10 @@ public final class Trajectories {
                 new Pose2d(
                     3.123596 * 1.74759405074, 3.260448 * 1.79571303587, new Rotation2d(Math.PI))),
             Constants.drive.auto.CONFIG);
+
+    /** Every path of the auto, driven without stopping where they join. */
+    public static final TrajectoryChain ALL =
+        new TrajectoryChain("WheelTenBall.ALL", TO_WHEEL, FIRST_SHOT, TURN_IN, SECOND_SHOOT);
   }
 
   public static class Generator {
@@ -257,8 +298,9 @@ public final class Trajectories {
     public static final Pose2d POSE1 =
         new Pose2d(2.430662 * 1.74759405074, 1.926384 * 1.79571303587, new Rotation2d());
 
-    public static final Trajectory TURN_IN =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TURN_IN =
+        new LazyTrajectory(
+            "Generator.TURN_IN",
             List.of(
                 POSE1,
                 new Pose2d(0.0, 0.0, Rotation2d.fromDegrees(23.617190)),
@@ -280,8 +322,9 @@ public final class Trajectories {
         new Pose2d(
             3.881773 * 1.74759405074, 2.718925 * 1.79571303587, Rotation2d.fromDegrees(112.677865));
 
-    public static final Trajectory TO_SHOOT =
-        TrajectoryGenerator.generateTrajectory(
+    public static final LazyTrajectory TO_SHOOT =
+        new LazyTrajectory(
+            "Generator.TO_SHOOT",
             List.of(
                 POSE2,
                 new Pose2d(
@@ -0,0 +1,314 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.constraint.TrajectoryConstraint;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precompiled trajectories in the deploy directory. The file is generated by running this class
+ * ("./gradlew generateTrajectories"), memory mapped on the robot, and each trajectory is only
+ * decoded when it is first asked for. Entries are keyed by name and by a hash of the waypoints and
+ * config they were generated from, so a stale entry is never used. Trajectories the robot has to
+ * generate again are written back with {@link #save}, so they are only generated once.
+ *
+ * <p>Layout, big-endian: magic, version and entry count as ints; then per entry the UTF-8 name
+ * (short length and bytes), the hash (long), and the offset and state count (ints); then the
+ * states, each as seven floats of time, velocity, acceleration, x, y, heading and curvature.
+ */
+public final class TrajectoryCache {
+
+  /** Name of the cache file in the deploy directory. */
+  public static final String FILE_NAME = "trajectories.bin";
+
+  private static final int MAGIC = 0x5452414A;
+  private static final int VERSION = 1;
+  private static final int STATE_BYTES = 7 * Float.BYTES;
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /** Parameters each constraint was built from, for the hash. */
+  private static final Map<TrajectoryConstraint, double[]> parameters =
+      Collections.synchronizedMap(new IdentityHashMap<TrajectoryConstraint, double[]>());
+
+  private static TrajectoryCache instance = null;
+
+  public static synchronized TrajectoryCache getInstance() {
+    if (instance == null) {
+      instance = new TrajectoryCache(new File(Filesystem.getDeployDirectory(), FILE_NAME));
+    }
+    return instance;
+  }
+
+  private final File file;
+  private ByteBuffer buffer = null;
+  /** Entry for each name: {hash, offset, state count}. */
+  private final HashMap<String, long[]> entries = new HashMap<String, long[]>();
+  /** Trajectories generated since the file was read, and the hashes they were generated for. */
+  private final HashMap<String, Trajectory> generated = new HashMap<String, Trajectory>();
+  private final HashMap<String, Long> generatedHashes = new HashMap<String, Long>();
+  private boolean dirty = false;
+
+  private TrajectoryCache(File file) {
+    this.file = file;
+    if (!file.exists()) return;
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+        DriverStation.reportWarning("Ignoring trajectory cache with an unknown format", false);
+        return;
+      }
+
+      int count = mapped.getInt();
+      for (int i = 0; i < count; i++) {
+        byte[] name = new byte[mapped.getShort()];
+        mapped.get(name);
+        long hash = mapped.getLong();
+        long offset = mapped.getInt();
+        long states = mapped.getInt();
+        entries.put(new String(name, StandardCharsets.UTF_8), new long[] {hash, offset, states});
+      }
+      buffer = mapped;
+    } catch (IOException e) {
+      DriverStation.reportWarning("Could not read trajectory cache: " + e.getMessage(), false);
+    }
+  }
+
+  /**
+   * Decode a trajectory from the cache.
+   *
+   * @param name Name the trajectory was cached under.
+   * @param hash Hash of the waypoints and config it should have been generated from.
+   * @return The trajectory, or null if it is missing or was generated from different inputs.
+   */
+  public synchronized Trajectory load(String name, long hash) {
+    Long regenerated = generatedHashes.get(name);
+    if (regenerated != null && regenerated == hash) return generated.get(name);
+
+    long[] entry = entries.get(name);
+    if (entry == null || entry[0] != hash) return null;
+
+    int offset = (int) entry[1];
+    int count = (int) entry[2];
+    List<Trajectory.State> states = new ArrayList<Trajectory.State>(count);
+    for (int i = 0; i < count; i++) {
+      int at = offset + i * STATE_BYTES;
+      states.add(
+          new Trajectory.State(
+              buffer.getFloat(at),
+              buffer.getFloat(at + 4),
+              buffer.getFloat(at + 8),
+              new Pose2d(
+                  buffer.getFloat(at + 12),
+                  buffer.getFloat(at + 16),
+                  new Rotation2d(buffer.getFloat(at + 20))),
+              buffer.getFloat(at + 24)));
+    }
+    return new Trajectory(states);
+  }
+
+  /**
+   * Keep a trajectory that had to be generated, to be written to the file by {@link #save}.
+   *
+   * @param name Name to cache the trajectory under.
+   * @param hash Hash of the waypoints and config it was generated from.
+   * @param trajectory Generated trajectory.
+   */
+  public synchronized void store(String name, long hash, Trajectory trajectory) {
+    generated.put(name, trajectory);
+    generatedHashes.put(name, hash);
+    dirty = true;
+  }
+
+  /**
+   * Rewrite the file with the trajectories generated since it was read in place of their stale
+   * entries. The new file is moved over the old one, so the copy mapped now stays readable. Slow,
+   * so only call it off the main loop.
+   */
+  public synchronized void save() {
+    if (!dirty) return;
+
+    Map<String, Long> hashes = new LinkedHashMap<String, Long>();
+    Map<String, Trajectory> trajectories = new LinkedHashMap<String, Trajectory>();
+    for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+      String name = entry.getKey();
+      if (generated.containsKey(name)) continue;
+      hashes.put(name, entry.getValue()[0]);
+      trajectories.put(name, load(name, entry.getValue()[0]));
+    }
+    hashes.putAll(generatedHashes);
+    trajectories.putAll(generated);
+
+    File temporary = new File(file.getPath() + ".tmp");
+    try {
+      write(temporary, hashes, trajectories);
+      Files.move(
+          temporary.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      dirty = false;
+    } catch (IOException e) {
+      DriverStation.reportWarning("Could not write trajectory cache: " + e.getMessage(), false);
+    }
+  }
+
+  /**
+   * Record the parameters a constraint was built from, so trajectories generated with it can be
+   * hashed without looking inside WPILib's classes. Every constraint in a cached config must be
+   * built through this.
+   *
+   * @param constraint Constraint to record.
+   * @param values Every value the constraint was built from.
+   * @return The constraint, for chaining.
+   */
+  public static <T extends TrajectoryConstraint> T keyed(T constraint, double... values) {
+    parameters.put(constraint, values.clone());
+    return constraint;
+  }
+
+  /**
+   * Hash the inputs to a trajectory. Covers every waypoint, the config's limits, and the type and
+   * recorded parameters of each constraint, so changing any constant that feeds generation changes
+   * the hash.
+   *
+   * @param waypoints Poses the trajectory passes through.
+   * @param config Config the trajectory is generated with.
+   * @return 64-bit FNV-1a hash.
+   * @throws IllegalArgumentException If a constraint was not built through {@link #keyed}.
+   */
+  public static long hash(List<Pose2d> waypoints, TrajectoryConfig config) {
+    long hash = FNV_OFFSET;
+    for (Pose2d pose : waypoints) {
+      hash = mix(hash, pose.getX());
+      hash = mix(hash, pose.getY());
+      hash = mix(hash, pose.getRotation().getRadians());
+    }
+
+    hash = mix(hash, config.getMaxVelocity());
+    hash = mix(hash, config.getMaxAcceleration());
+    hash = mix(hash, config.getStartVelocity());
+    hash = mix(hash, config.getEndVelocity());
+    hash = mix(hash, config.isReversed() ? 1.0 : 0.0);
+    for (TrajectoryConstraint constraint : config.getConstraints()) {
+      double[] values = parameters.get(constraint);
+      if (values == null) {
+        throw new IllegalArgumentException(
+            "No parameters recorded for " + constraint.getClass().getSimpleName());
+      }
+      hash = mix(hash, constraint.getClass().getName());
+      for (double value : values) hash = mix(hash, value);
+    }
+    return hash;
+  }
+
+  /**
+   * Generates every trajectory in {@link Trajectories} and the {@link AutoFile} routines into the
+   * file given as the first argument, reading the routines and {@link WaypointOverrides} from the
+   * same directory.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.out.println("Usage: TrajectoryCache <output file>");
+      return;
+    }
+
+    File file = new File(args[0]);
+    File directory = file.getAbsoluteFile().getParentFile();
+    WaypointOverrides.load(new File(directory, WaypointOverrides.FILE_NAME));
+    Trajectories.loadAll();
+    AutoFile.load(new File(directory, AutoFile.DIRECTORY));
+    Map<String, Long> hashes = new LinkedHashMap<String, Long>();
+    Map<String, Trajectory> trajectories = new LinkedHashMap<String, Trajectory>();
+    for (LazyTrajectory trajectory : LazyTrajectory.getAll()) {
+      hashes.put(trajectory.getName(), trajectory.getHash());
+      trajectories.put(trajectory.getName(), trajectory.generate());
+    }
+
+    directory.mkdirs();
+    write(file, hashes, trajectories);
+
+    System.out.printf("Wrote %d trajectories to %s%n", trajectories.size(), file);
+  }
+
+  private static void write(
+      File file, Map<String, Long> hashes, Map<String, Trajectory> trajectories)
+      throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(trajectories.size());
+
+      // The header is written first, so work out where the states will start.
+      int offset = 3 * Integer.BYTES;
+      for (String name : trajectories.keySet()) {
+        offset += Short.BYTES + name.getBytes(StandardCharsets.UTF_8).length;
+        offset += Long.BYTES + 2 * Integer.BYTES;
+      }
+
+      for (Map.Entry<String, Trajectory> entry : trajectories.entrySet()) {
+        byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        int states = entry.getValue().getStates().size();
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeLong(hashes.get(entry.getKey()));
+        out.writeInt(offset);
+        out.writeInt(states);
+        offset += states * STATE_BYTES;
+      }
+
+      for (Trajectory trajectory : trajectories.values()) {
+        for (Trajectory.State state : trajectory.getStates()) {
+          out.writeFloat((float) state.timeSeconds);
+          out.writeFloat((float) state.velocityMetersPerSecond);
+          out.writeFloat((float) state.accelerationMetersPerSecondSq);
+          out.writeFloat((float) state.poseMeters.getX());
+          out.writeFloat((float) state.poseMeters.getY());
+          out.writeFloat((float) state.poseMeters.getRotation().getRadians());
+          out.writeFloat((float) state.curvatureRadPerMeter);
+        }
+      }
+    }
+  }
+
+  private static long mix(long hash, double value) {
+    long bits = Double.doubleToLongBits(value);
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash ^= (bits >>> (i * 8)) & 0xff;
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private static long mix(long hash, String value) {
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= FNV_PRIME;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,151 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.geometry.Transform2d;
+import edu.wpi.first.wpilibj.geometry.Translation2d;
+import edu.wpi.first.wpilibj.spline.PoseWithCurvature;
+import edu.wpi.first.wpilibj.spline.QuinticHermiteSpline;
+import edu.wpi.first.wpilibj.spline.SplineHelper;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.constraint.TrajectoryConstraint;
+import frc.robot.Constants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Several paths driven one after another without stopping in between. Where one path ends where
+ * the next begins, heading the same way, the robot carries speed through the joint: both paths are
+ * regenerated to meet at the same boundary velocity. Where they meet at a corner the robot still
+ * stops, since it cannot change direction instantly.
+ *
+ * <p>Each regenerated segment is its own {@link LazyTrajectory}, so it is cached and built in the
+ * background like any other path, and the path it replaces is no longer built on its own. A path
+ * that stops at both ends is used as it is.
+ */
+public class TrajectoryChain {
+
+  private static final Transform2d FLIP =
+      new Transform2d(new Translation2d(), Rotation2d.fromDegrees(180.0));
+
+  private final String name;
+  private final List<LazyTrajectory> paths;
+  private final List<LazyTrajectory> segments;
+
+  /**
+   * Constructs a new TrajectoryChain.
+   *
+   * @param name Unique name to cache the segments under.
+   * @param paths Paths to drive, in order.
+   */
+  public TrajectoryChain(String name, LazyTrajectory... paths) {
+    this.name = name;
+    this.paths = Collections.unmodifiableList(Arrays.asList(paths.clone()));
+
+    double[] boundaries = new double[paths.length + 1];
+    for (int i = 1; i < paths.length; i++) {
+      boundaries[i] = getBoundaryVelocity(paths[i - 1], paths[i]);
+    }
+
+    List<LazyTrajectory> segments = new ArrayList<LazyTrajectory>();
+    for (int i = 0; i < paths.length; i++) {
+      TrajectoryConfig original = paths[i].getConfig();
+      if (boundaries[i] == original.getStartVelocity()
+          && boundaries[i + 1] == original.getEndVelocity()) {
+        // Stops at both ends anyway, so drive the path as it is.
+        segments.add(paths[i]);
+        continue;
+      }
+
+      TrajectoryConfig config =
+          LazyTrajectory.copyConfig(original)
+              .setStartVelocity(boundaries[i])
+              .setEndVelocity(boundaries[i + 1]);
+      segments.add(new LazyTrajectory(name + "." + i, paths[i].getWaypoints(), config));
+      // Only the segment is driven, so do not build, cache and warm up the path as well.
+      paths[i].unregister();
+    }
+    this.segments = Collections.unmodifiableList(segments);
+  }
+
+  /** Returns the name the segments are cached under. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the paths the chain was made from, in the same order as the segments. */
+  public List<LazyTrajectory> getPaths() {
+    return paths;
+  }
+
+  /** Returns the segments, in order, with their boundary velocities matched. */
+  public List<LazyTrajectory> getSegments() {
+    return segments;
+  }
+
+  /**
+   * Returns the speed to pass from one path into the next at. It is zero at a corner, and otherwise
+   * low enough that each path can reach it over half its length and that every constraint of both
+   * paths allows it at the joint.
+   */
+  private static double getBoundaryVelocity(LazyTrajectory from, LazyTrajectory to) {
+    List<Pose2d> end = from.getWaypoints();
+    Pose2d last = end.get(end.size() - 1);
+    Pose2d first = to.getWaypoints().get(0);
+
+    double gap = last.getTranslation().getDistance(first.getTranslation());
+    double turn = Math.abs(last.getRotation().minus(first.getRotation()).getRadians());
+    if (gap > Constants.drive.auto.CHAIN_POSITION_TOLERANCE
+        || turn > Constants.drive.auto.CHAIN_ANGLE_TOLERANCE
+        || from.getConfig().isReversed() != to.getConfig().isReversed()) {
+      return 0.0;
+    }
+
+    double velocity = Math.min(from.getConfig().getMaxVelocity(), to.getConfig().getMaxVelocity());
+    velocity = Math.min(velocity, Math.sqrt(from.getConfig().getMaxAcceleration() * length(from)));
+    velocity = Math.min(velocity, Math.sqrt(to.getConfig().getMaxAcceleration() * length(to)));
+    // The generator clamps each path's end to its own constraints, with its own curvature there,
+    // so take the lower of the two or the speed would jump where they join.
+    velocity = constrain(from, true, velocity);
+    velocity = constrain(to, false, velocity);
+    return velocity;
+  }
+
+  /**
+   * Returns a speed no faster than every constraint of a path allows at its first or last point,
+   * on the spline the generator fits through its waypoints.
+   */
+  private static double constrain(LazyTrajectory path, boolean atEnd, double velocity) {
+    TrajectoryConfig config = path.getConfig();
+    // Reversed paths are fit turned around and the result turned back, as the generator does.
+    List<Pose2d> waypoints = new ArrayList<Pose2d>();
+    for (Pose2d waypoint : path.getWaypoints()) {
+      waypoints.add(config.isReversed() ? waypoint.plus(FLIP) : waypoint);
+    }
+    QuinticHermiteSpline[] splines = SplineHelper.getQuinticSplinesFromWaypoints(waypoints);
+    PoseWithCurvature point =
+        atEnd ? splines[splines.length - 1].getPoint(1.0) : splines[0].getPoint(0.0);
+
+    Pose2d pose = config.isReversed() ? point.poseMeters.plus(FLIP) : point.poseMeters;
+    double curvature =
+        config.isReversed() ? -point.curvatureRadPerMeter : point.curvatureRadPerMeter;
+    for (TrajectoryConstraint constraint : config.getConstraints()) {
+      velocity =
+          Math.min(velocity, constraint.getMaxVelocityMetersPerSecond(pose, curvature, velocity));
+    }
+    return velocity;
+  }
+
+  /** Returns the straight line length through a path's waypoints, which never exceeds the arc. */
+  private static double length(LazyTrajectory path) {
+    List<Pose2d> waypoints = path.getWaypoints();
+    double length = 0.0;
+    for (int i = 1; i < waypoints.size(); i++) {
+      length +=
+          waypoints.get(i).getTranslation().getDistance(waypoints.get(i - 1).getTranslation());
+    }
+    return length;
+  }
+}
@@ -0,0 +1,60 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Low priority worker that builds every {@link LazyTrajectory}, and its mirror for the other
+ * alliance, in the background after the robot starts, so none of them are generated on the main
+ * loop. Other slow setup, like warming up the selected autonomous, can be queued ahead of the
+ * remaining paths with {@link #prioritize}.
+ */
+public final class TrajectoryLoader {
+
+  private static final LinkedBlockingDeque<Runnable> queue = new LinkedBlockingDeque<Runnable>();
+  private static Thread thread = null;
+
+  private TrajectoryLoader() {}
+
+  /** Queue every trajectory and start the worker. Does nothing if it is already running. */
+  public static synchronized void start() {
+    if (thread != null) return;
+
+    Trajectories.loadAll();
+    List<LazyTrajectory> all = LazyTrajectory.getAll();
+    for (LazyTrajectory trajectory : all) queue.addLast(trajectory::get);
+    // Mirroring only turns the states over, so do it once every path is built.
+    for (LazyTrajectory trajectory : all) queue.addLast(trajectory.mirrored()::get);
+    // Write back anything that was stale, so it is not generated again next boot. In simulation
+    // the deploy directory is the source tree, which is left to generateTrajectories.
+    if (RobotBase.isReal()) queue.addLast(() -> TrajectoryCache.getInstance().save());
+
+    thread = new Thread(TrajectoryLoader::run, "TrajectoryLoader");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  /**
+   * Run a task on the worker before anything else still queued.
+   *
+   * @param task Work to do off the main loop.
+   */
+  public static void prioritize(Runnable task) {
+    queue.addFirst(task);
+  }
+
+  private static void run() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        queue.takeFirst().run();
+      } catch (InterruptedException e) {
+        return;
+      } catch (RuntimeException e) {
+        DriverStation.reportError("Trajectory loading failed: " + e, e.getStackTrace());
+      }
+    }
+  }
+}
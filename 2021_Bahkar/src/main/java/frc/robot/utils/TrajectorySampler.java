@@ -0,0 +1,202 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import java.util.List;
+
+/**
+ * Samples a trajectory for a follower that only moves forward in time. The trajectory is copied
+ * into primitive arrays once, a cursor remembers where the last sample landed so finding the next
+ * one is usually a step or two instead of a binary search, and each sample is written into this
+ * object rather than a new {@link Trajectory.State}. The interpolation matches {@link
+ * Trajectory#sample(double)}.
+ */
+public class TrajectorySampler {
+
+  private final double[] times;
+  private final double[] velocities;
+  private final double[] accelerations;
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] headings;
+  private final double[] curvatures;
+
+  /** Index of the first state at or after the last sampled time. */
+  private int cursor = 1;
+
+  private double time;
+  private double velocity;
+  private double acceleration;
+  private double x;
+  private double y;
+  private double heading;
+  private double curvature;
+
+  /**
+   * Constructs a new TrajectorySampler.
+   *
+   * @param trajectory Trajectory to sample.
+   */
+  public TrajectorySampler(Trajectory trajectory) {
+    List<Trajectory.State> states = trajectory.getStates();
+    int count = states.size();
+    times = new double[count];
+    velocities = new double[count];
+    accelerations = new double[count];
+    xs = new double[count];
+    ys = new double[count];
+    headings = new double[count];
+    curvatures = new double[count];
+
+    for (int i = 0; i < count; i++) {
+      Trajectory.State state = states.get(i);
+      times[i] = state.timeSeconds;
+      velocities[i] = state.velocityMetersPerSecond;
+      accelerations[i] = state.accelerationMetersPerSecondSq;
+      xs[i] = state.poseMeters.getX();
+      ys[i] = state.poseMeters.getY();
+      headings[i] = state.poseMeters.getRotation().getRadians();
+      curvatures[i] = state.curvatureRadPerMeter;
+    }
+
+    set(0);
+  }
+
+  /** Move the cursor back to the start, to follow the trajectory again. */
+  public void reset() {
+    cursor = 1;
+    set(0);
+  }
+
+  /**
+   * Sample the trajectory. Sampling earlier than the last call still works, but searches again.
+   *
+   * @param t Time since the start of the trajectory (Seconds).
+   */
+  public void sample(double t) {
+    int last = times.length - 1;
+    if (t <= times[0]) {
+      set(0);
+      return;
+    }
+    if (t >= times[last]) {
+      set(last);
+      return;
+    }
+
+    if (cursor > last || times[cursor - 1] > t) cursor = search(t);
+    while (times[cursor] < t) cursor++;
+
+    int prev = cursor - 1;
+    if (Math.abs(times[cursor] - times[prev]) < 1e-9) {
+      set(cursor);
+      return;
+    }
+
+    // Move along the path by the distance the constant acceleration between states covers, and
+    // interpolate the pose and curvature by the fraction of the distance between states that is.
+    double dt = t - times[prev];
+    boolean reversing =
+        velocities[prev] < 0.0 || (Math.abs(velocities[prev]) < 1e-9 && accelerations[prev] < 0.0);
+    double distance =
+        (velocities[prev] * dt + 0.5 * accelerations[prev] * dt * dt) * (reversing ? -1.0 : 1.0);
+    double dx = xs[cursor] - xs[prev];
+    double dy = ys[cursor] - ys[prev];
+    double length = Math.hypot(dx, dy);
+    double fraction = length > 1e-9 ? distance / length : 0.0;
+
+    time = t;
+    velocity = velocities[prev] + accelerations[prev] * dt;
+    acceleration = accelerations[prev];
+    x = xs[prev] + dx * fraction;
+    y = ys[prev] + dy * fraction;
+    heading =
+        headings[prev]
+            + Math.IEEEremainder(headings[cursor] - headings[prev], 2.0 * Math.PI) * fraction;
+    curvature = curvatures[prev] + (curvatures[cursor] - curvatures[prev]) * fraction;
+  }
+
+  /**
+   * Find where the trajectory passes closest to a point. Not meant for every loop; it checks every
+   * state after the given time.
+   *
+   * @param x X position of the point (Meters).
+   * @param y Y position of the point (Meters).
+   * @param after Time to start looking from (Seconds).
+   * @return Time the trajectory is closest to the point (Seconds).
+   */
+  public double getTimeNearest(double x, double y, double after) {
+    double nearest = Double.POSITIVE_INFINITY;
+    double nearestTime = times[times.length - 1];
+    for (int i = 0; i < times.length; i++) {
+      if (times[i] < after) continue;
+      double distance = Math.hypot(xs[i] - x, ys[i] - y);
+      if (distance < nearest) {
+        nearest = distance;
+        nearestTime = times[i];
+      }
+    }
+    return nearestTime;
+  }
+
+  /** Returns the length of the trajectory (Seconds). */
+  public double getTotalTime() {
+    return times[times.length - 1];
+  }
+
+  /** Returns the time of the last sample (Seconds). */
+  public double getTime() {
+    return time;
+  }
+
+  /** Returns the velocity along the path at the last sample (Meters per Second). */
+  public double getVelocity() {
+    return velocity;
+  }
+
+  /** Returns the acceleration along the path at the last sample (Meters per Second Squared). */
+  public double getAcceleration() {
+    return acceleration;
+  }
+
+  /** Returns the X position at the last sample (Meters). */
+  public double getX() {
+    return x;
+  }
+
+  /** Returns the Y position at the last sample (Meters). */
+  public double getY() {
+    return y;
+  }
+
+  /** Returns the direction of travel at the last sample (Radians). */
+  public double getHeading() {
+    return heading;
+  }
+
+  /** Returns the curvature of the path at the last sample (Radians per Meter). */
+  public double getCurvature() {
+    return curvature;
+  }
+
+  /** Returns the index of the first state at or after a time. */
+  private int search(double t) {
+    int low = 1;
+    int high = times.length - 1;
+    while (low != high) {
+      int mid = (low + high) / 2;
+      if (times[mid] < t) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+  private void set(int index) {
+    time = times[index];
+    velocity = velocities[index];
+    acceleration = accelerations[index];
+    x = xs[index];
+    y = ys[index];
+    heading = headings[index];
+    curvature = curvatures[index];
+  }
+}
@@ -0,0 +1,269 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Desktop tool that moves the inside waypoints of the autonomous paths to make them faster to
+ * drive under each path's config, bar zone included. Run with "./gradlew optimizeWaypoints", or
+ * "-Ppaths=trench8M.DOWN_TRENCH,trench8M.TO_SHOOT" to pick paths; the result is written to the
+ * deploy directory as {@link WaypointOverrides} and picked up by the next robot build.
+ *
+ * <p>The first and last waypoint of each path stay where they are, since the robot is placed there
+ * or picks up balls there and the paths before and after share them. Each inside waypoint may move
+ * up to {@link #MAX_SHIFT} and turn up to {@link #MAX_TURN} from where it was written in code. The
+ * search is a simple evolution strategy: each round, a population of random perturbations of the
+ * best waypoints so far is generated in parallel on a fork-join pool, and the step size grows after
+ * an improvement and shrinks otherwise.
+ *
+ * <p>A path that is driven as part of a {@link TrajectoryChain} is timed with the chain's config
+ * for it, so it starts and ends at the speed the robot carries through the joints rather than
+ * stopped.
+ */
+public final class WaypointOptimizer {
+
+  /** Farthest an inside waypoint may move from where it is in code (Meters). */
+  private static final double MAX_SHIFT = 0.25;
+  /** Farthest an inside waypoint's heading may turn from where it is in code (Radians). */
+  private static final double MAX_TURN = Math.toRadians(20.0);
+
+  private static final int ROUNDS = 300;
+  /** Candidates per round, per core. */
+  private static final int CANDIDATES_PER_CORE = 4;
+  /** Step size, as a fraction of the limits, at which the search stops. */
+  private static final double MIN_STEP = 0.01;
+  /** Smallest saving in time worth keeping (Seconds). */
+  private static final double MIN_IMPROVEMENT = 1e-4;
+  /** Seed, so the same inputs give the same waypoints. */
+  private static final long SEED = 1640;
+
+  private WaypointOptimizer() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: WaypointOptimizer <waypoints.csv> [path name ...]");
+      return;
+    }
+
+    // Start from the last optimization so running again refines it.
+    File file = new File(args[0]);
+    WaypointOverrides.load(file);
+    // Report failed generation as an exception rather than through the Driver Station.
+    TrajectoryGenerator.setErrorHandler(
+        (message, trace) -> {
+          throw new IllegalStateException(message);
+        });
+
+    Map<String, LazyTrajectory> paths = findPaths();
+    Map<String, TrajectoryConfig> chained = findChainedConfigs();
+    List<String> selected = Arrays.asList(args).subList(1, args.length);
+    for (String name : selected) {
+      if (!paths.containsKey(name)) System.out.println("No path named " + name);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    Map<String, List<Pose2d>> result = new LinkedHashMap<String, List<Pose2d>>();
+    for (LazyTrajectory path : paths.values()) {
+      List<Pose2d> waypoints = path.getWaypoints();
+      boolean chosen = selected.isEmpty() || selected.contains(path.getName());
+      TrajectoryConfig config = chained.getOrDefault(path.getName(), path.getConfig());
+      if (chosen && waypoints.size() > 2) waypoints = optimize(path, config, pool);
+      result.put(path.getName(), waypoints);
+    }
+    pool.shutdown();
+
+    WaypointOverrides.write(file, result);
+    System.out.printf("Wrote %d paths to %s%n", result.size(), file);
+  }
+
+  /** Returns every path declared in {@link Trajectories}, by name. */
+  private static Map<String, LazyTrajectory> findPaths() {
+    Trajectories.loadAll();
+
+    Map<String, LazyTrajectory> paths = new LinkedHashMap<String, LazyTrajectory>();
+    for (Class<?> group : Trajectories.class.getDeclaredClasses()) {
+      for (Field field : group.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) || field.getType() != LazyTrajectory.class) {
+          continue;
+        }
+        try {
+          LazyTrajectory path = (LazyTrajectory) field.get(null);
+          paths.put(path.getName(), path);
+        } catch (IllegalAccessException e) {
+          System.out.println("Skipping " + field + ": " + e.getMessage());
+        }
+      }
+    }
+    return paths;
+  }
+
+  /**
+   * Returns the config each chained path is driven with, by the name of the path, with the start
+   * and end velocities of its segment in the {@link TrajectoryChain}.
+   */
+  private static Map<String, TrajectoryConfig> findChainedConfigs() {
+    Map<String, TrajectoryConfig> configs = new LinkedHashMap<String, TrajectoryConfig>();
+    for (Class<?> group : Trajectories.class.getDeclaredClasses()) {
+      for (Field field : group.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) || field.getType() != TrajectoryChain.class) {
+          continue;
+        }
+        try {
+          TrajectoryChain chain = (TrajectoryChain) field.get(null);
+          List<LazyTrajectory> chainPaths = chain.getPaths();
+          List<LazyTrajectory> segments = chain.getSegments();
+          for (int i = 0; i < chainPaths.size(); i++) {
+            configs.put(chainPaths.get(i).getName(), segments.get(i).getConfig());
+          }
+        } catch (IllegalAccessException e) {
+          System.out.println("Skipping " + field + ": " + e.getMessage());
+        }
+      }
+    }
+    return configs;
+  }
+
+  /** Search for faster inside waypoints for a path, timed with a config. */
+  private static List<Pose2d> optimize(
+      LazyTrajectory path, TrajectoryConfig config, ForkJoinPool pool) {
+    List<Pose2d> original = path.getOriginalWaypoints();
+    List<Pose2d> current = path.getWaypoints();
+
+    // Offsets {x, y, heading} of each inside waypoint from the original.
+    int inside = original.size() - 2;
+    double[] best = new double[inside * 3];
+    for (int i = 0; i < inside; i++) {
+      Pose2d from = original.get(i + 1);
+      Pose2d to = current.get(i + 1);
+      best[i * 3] = to.getX() - from.getX();
+      best[i * 3 + 1] = to.getY() - from.getY();
+      best[i * 3 + 2] = to.getRotation().minus(from.getRotation()).getRadians();
+    }
+    clamp(best);
+
+    double start = evaluate(config, original, best);
+    double bestTime = start;
+    double step = 0.5;
+    Random random = new Random(SEED);
+    int count = pool.getParallelism() * CANDIDATES_PER_CORE;
+
+    for (int round = 0; round < ROUNDS && step > MIN_STEP; round++) {
+      double[][] candidates = new double[count][];
+      for (int c = 0; c < count; c++) {
+        candidates[c] = best.clone();
+        for (int k = 0; k < best.length; k++) {
+          double limit = k % 3 == 2 ? MAX_TURN : MAX_SHIFT;
+          candidates[c][k] += random.nextGaussian() * step * limit;
+        }
+        clamp(candidates[c]);
+      }
+
+      double[] times = new double[count];
+      pool.invoke(new Evaluate(config, original, candidates, times, 0, count));
+
+      int fastest = 0;
+      for (int c = 1; c < count; c++) if (times[c] < times[fastest]) fastest = c;
+
+      if (times[fastest] < bestTime - MIN_IMPROVEMENT) {
+        best = candidates[fastest];
+        bestTime = times[fastest];
+        step = Math.min(1.0, step * 1.2);
+      } else {
+        step *= 0.7;
+      }
+    }
+
+    System.out.printf("%s: %.3f s -> %.3f s%n", path.getName(), start, bestTime);
+    return toWaypoints(original, best);
+  }
+
+  /** Evaluates a range of candidates, splitting the range across the pool. */
+  private static final class Evaluate extends RecursiveAction {
+    private final TrajectoryConfig config;
+    private final List<Pose2d> original;
+    private final double[][] candidates;
+    private final double[] times;
+    private final int from;
+    private final int to;
+
+    Evaluate(
+        TrajectoryConfig config,
+        List<Pose2d> original,
+        double[][] candidates,
+        double[] times,
+        int from,
+        int to) {
+      this.config = config;
+      this.original = original;
+      this.candidates = candidates;
+      this.times = times;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        times[from] = evaluate(config, original, candidates[from]);
+        return;
+      }
+      int middle = (from + to) / 2;
+      invokeAll(
+          new Evaluate(config, original, candidates, times, from, middle),
+          new Evaluate(config, original, candidates, times, middle, to));
+    }
+  }
+
+  /** Returns the time to drive a candidate, or infinity if it cannot be generated. */
+  private static double evaluate(
+      TrajectoryConfig config, List<Pose2d> original, double[] offsets) {
+    try {
+      double time =
+          TrajectoryGenerator.generateTrajectory(toWaypoints(original, offsets), config)
+              .getTotalTimeSeconds();
+      return time > 0.0 ? time : Double.POSITIVE_INFINITY;
+    } catch (RuntimeException e) {
+      return Double.POSITIVE_INFINITY;
+    }
+  }
+
+  private static List<Pose2d> toWaypoints(List<Pose2d> original, double[] offsets) {
+    List<Pose2d> waypoints = new ArrayList<Pose2d>(original);
+    for (int i = 0; i < offsets.length / 3; i++) {
+      Pose2d from = original.get(i + 1);
+      waypoints.set(
+          i + 1,
+          new Pose2d(
+              from.getX() + offsets[i * 3],
+              from.getY() + offsets[i * 3 + 1],
+              from.getRotation().rotateBy(new Rotation2d(offsets[i * 3 + 2]))));
+    }
+    return waypoints;
+  }
+
+  /** Keep each waypoint within the distance and turn it may move. */
+  private static void clamp(double[] offsets) {
+    for (int i = 0; i < offsets.length; i += 3) {
+      double distance = Math.hypot(offsets[i], offsets[i + 1]);
+      if (distance > MAX_SHIFT) {
+        offsets[i] *= MAX_SHIFT / distance;
+        offsets[i + 1] *= MAX_SHIFT / distance;
+      }
+      offsets[i + 2] = Math.max(-MAX_TURN, Math.min(MAX_TURN, offsets[i + 2]));
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package frc.robot.utils;
+
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Waypoints written by the {@link WaypointOptimizer} to replace the hand-tuned ones in {@link
+ * Trajectories}. They are kept in the deploy directory as lines of "name,x,y,degrees", in order
+ * for each path.
+ *
+ * <p>An override is only used while the path still has the same number of waypoints and the same
+ * start and end, so changing a path in code quietly retires its old optimization.
+ */
+public final class WaypointOverrides {
+
+  /** Name of the file in the deploy directory. */
+  public static final String FILE_NAME = "waypoints.csv";
+
+  /** How closely the ends must match, allowing for the precision they are written with. */
+  private static final double TOLERANCE = 1e-5;
+
+  private static Map<String, List<Pose2d>> overrides = null;
+
+  private WaypointOverrides() {}
+
+  /**
+   * Load overrides from a file instead of the deploy directory, for desktop tools.
+   *
+   * @param file File to read; if it does not exist there are no overrides.
+   */
+  public static synchronized void load(File file) {
+    overrides = new HashMap<String, List<Pose2d>>();
+    if (!file.exists()) return;
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.trim().split(",");
+        if (fields.length != 4 || fields[0].startsWith("#")) continue;
+
+        try {
+          Pose2d waypoint =
+              new Pose2d(
+                  Double.parseDouble(fields[1]),
+                  Double.parseDouble(fields[2]),
+                  Rotation2d.fromDegrees(Double.parseDouble(fields[3])));
+          overrides.computeIfAbsent(fields[0], name -> new ArrayList<Pose2d>()).add(waypoint);
+        } catch (NumberFormatException e) {
+          System.err.println("Skipping bad waypoint override: " + line);
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Could not read waypoint overrides: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the waypoints to use for a path.
+   *
+   * @param name Name of the path.
+   * @param waypoints Waypoints given in code.
+   * @return The override if there is a matching one, otherwise the waypoints given.
+   */
+  public static synchronized List<Pose2d> get(String name, List<Pose2d> waypoints) {
+    if (overrides == null) load(new File(Filesystem.getDeployDirectory(), FILE_NAME));
+
+    List<Pose2d> override = overrides.get(name);
+    if (override == null || override.size() != waypoints.size()) return waypoints;
+
+    int last = waypoints.size() - 1;
+    if (!matches(override.get(0), waypoints.get(0))
+        || !matches(override.get(last), waypoints.get(last))) {
+      return waypoints;
+    }
+
+    // Keep the ends exactly as given, since other paths and odometry resets share them.
+    List<Pose2d> merged = new ArrayList<Pose2d>(override);
+    merged.set(0, waypoints.get(0));
+    merged.set(last, waypoints.get(last));
+    return merged;
+  }
+
+  /**
+   * Write overrides to a file.
+   *
+   * @param file File to write.
+   * @param paths Waypoints for each path, by name.
+   */
+  public static void write(File file, Map<String, List<Pose2d>> paths) throws IOException {
+    try (PrintWriter writer = new PrintWriter(file)) {
+      writer.println("# Generated by WaypointOptimizer: name,x,y,degrees");
+      for (Map.Entry<String, List<Pose2d>> path : paths.entrySet()) {
+        for (Pose2d waypoint : path.getValue()) {
+          writer.printf(
+              Locale.ROOT,
+              "%s,%.6f,%.6f,%.6f%n",
+              path.getKey(),
+              waypoint.getX(),
+              waypoint.getY(),
+              waypoint.getRotation().getDegrees());
+        }
+      }
+    }
+  }
+
+  private static boolean matches(Pose2d a, Pose2d b) {
+    return Math.abs(a.getX() - b.getX()) < TOLERANCE
+        && Math.abs(a.getY() - b.getY()) < TOLERANCE
+        && Math.abs(a.getRotation().minus(b.getRotation()).getRadians()) < TOLERANCE;
+  }
+}
@@ -1,47 +1,126 @@
 package frc.robot.utils.rotationlib;
 
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
-import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Heading profile through a list of timed rotations, interpolated linearly between them. Each
+ * rotation is unwrapped against the one before it, so the robot always turns the short way. The
+ * times are measured from the start of the trajectory the profile is driven with, so the heading
+ * lines up with the translation.
+ *
+ * <p>The profile is kept in primitive arrays, and a cursor remembers the last segment sampled, so
+ * sampling forward in time does not search or allocate. The cursor is not thread safe; sample from
+ * another thread through a {@link #copy()}.
+ */
 public class LinearInterpolation {
-  ArrayList<Double> rotations;
-  ArrayList<Double> times;
+  private final double[] rotations;
+  private final double[] times;
 
+  /** Index of the first rotation at or after the last sampled time. */
+  private int cursor = 1;
+
+  /**
+   * Constructs a new LinearInterpolation.
+   *
+   * @param rotations Headings to reach, in order of increasing time.
+   * @param start Heading at the start of the trajectory.
+   */
   public LinearInterpolation(List<Rotation> rotations, Rotation2d start) {
-    times.add(0.0);
-    this.rotations.add(start.getDegrees());
-    for (Rotation rotation : rotations) {
-      this.rotations.add(rotation.getRotation().getDegrees());
-      times.add(rotation.getTime());
+    this.rotations = new double[rotations.size() + 1];
+    times = new double[rotations.size() + 1];
+
+    this.rotations[0] = start.getRadians();
+    times[0] = 0.0;
+    for (int i = 1; i < times.length; i++) {
+      Rotation rotation = rotations.get(i - 1);
+      if (rotation.getTime() <= times[i - 1]) {
+        throw new IllegalArgumentException("Rotations must be in order of increasing time");
+      }
+
+      double delta = rotation.getRotation().getRadians() - this.rotations[i - 1];
+      this.rotations[i] = this.rotations[i - 1] + Math.IEEEremainder(delta, 2.0 * Math.PI);
+      times[i] = rotation.getTime();
     }
   }
 
+  /** Constructs a profile that shares another's rotations but has its own cursor. */
+  private LinearInterpolation(LinearInterpolation other) {
+    rotations = other.rotations;
+    times = other.times;
+  }
+
+  /**
+   * Returns the same profile with its own cursor, so it can be sampled on another thread.
+   *
+   * @return Copy of the profile.
+   */
+  public LinearInterpolation copy() {
+    return new LinearInterpolation(this);
+  }
+
+  /**
+   * Sample the heading.
+   *
+   * @param time Time since the start of the trajectory (Seconds).
+   * @return Heading at that time.
+   */
   public Rotation2d sample(double time) {
-    int upperIndex = 0;
-    int lowerIndex = 0;
-
-    for (int i = 0; i < times.size(); i++) {
-      if (times.get(i) >= time) {
-        upperIndex = i;
-        lowerIndex = i - 1;
-        break;
-      }
-    }
+    return new Rotation2d(getRadians(time));
+  }
+
+  /**
+   * Sample the heading without allocating. Before the first rotation and after the last the
+   * heading is held.
+   *
+   * @param time Time since the start of the trajectory (Seconds).
+   * @return Heading at that time (Radians), unwrapped so it may be outside [-pi, pi].
+   */
+  public double getRadians(double time) {
+    int last = times.length - 1;
+    if (time <= times[0]) return rotations[0];
+    if (time >= times[last]) return rotations[last];
+
+    int upper = seek(time);
+    int lower = upper - 1;
+    double fraction = (time - times[lower]) / (times[upper] - times[lower]);
+    return rotations[lower] + (rotations[upper] - rotations[lower]) * fraction;
+  }
+
+  /**
+   * Returns the rate the heading is changing at, for feedforward.
+   *
+   * @param time Time since the start of the trajectory (Seconds).
+   * @return Angular velocity (Radians per Second).
+   */
+  public double getVelocity(double time) {
+    int last = times.length - 1;
+    if (time < times[0] || time >= times[last]) return 0.0;
 
-    if (upperIndex == 0 && lowerIndex == 0) {
-      return Rotation2d.fromDegrees(rotations.get(rotations.size() - 1));
-    } else {
-      double rotation =
-          ((rotations.get(upperIndex) - rotations.get(lowerIndex))
-                      / (times.get(upperIndex) - times.get(lowerIndex)))
-                  * time
-              - (((rotations.get(upperIndex) - rotations.get(lowerIndex))
-                          / (times.get(upperIndex) - times.get(lowerIndex)))
-                      * times.get(lowerIndex)
-                  - rotations.get(lowerIndex));
-
-      return Rotation2d.fromDegrees(rotation);
+    int upper = seek(time);
+    int lower = upper - 1;
+    return (rotations[upper] - rotations[lower]) / (times[upper] - times[lower]);
+  }
+
+  /** Returns the time of the last rotation (Seconds). */
+  public double getTotalTime() {
+    return times[times.length - 1];
+  }
+
+  /** Move the cursor to the first rotation at or after a time inside the profile. */
+  private int seek(double time) {
+    if (cursor >= times.length || times[cursor - 1] > time) {
+      // Time went backwards, so search from scratch.
+      int low = 1;
+      int high = times.length - 1;
+      while (low != high) {
+        int mid = (low + high) / 2;
+        if (times[mid] < time) low = mid + 1;
+        else high = mid;
+      }
+      cursor = low;
     }
+    while (times[cursor] < time) cursor++;
+    return cursor;
   }
 }
@@ -1,23 +1,71 @@
 package frc.robot.utils.rotationlib;
 
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import java.util.List;
 
+/**
+ * Supplies the heading a holonomic follower should hold along a trajectory. It is sampled with the
+ * follower's own clock rather than a separate timer, so the heading stays aligned with the path.
+ */
 public class Supplier {
 
-  private LinearInterpolation interpolation;
-  private Timer timer = new Timer();
+  private final LinearInterpolation interpolation;
 
+  /**
+   * Constructs a new Supplier.
+   *
+   * @param interpolation Heading profile to follow.
+   */
   public Supplier(LinearInterpolation interpolation) {
     this.interpolation = interpolation;
   }
 
-  public void start() {
-    timer.reset();
-    timer.start();
+  /**
+   * Constructs a Supplier that holds one heading for the whole trajectory.
+   *
+   * @param rotation Heading to hold.
+   * @return Supplier of the heading.
+   */
+  public static Supplier of(Rotation2d rotation) {
+    return new Supplier(new LinearInterpolation(List.of(), rotation));
   }
 
-  public Rotation2d get() {
-    return interpolation.sample(timer.get());
+  /**
+   * Returns the same heading profile, sampled independently of this one, for use on another
+   * thread.
+   *
+   * @return Copy of the supplier.
+   */
+  public Supplier copy() {
+    return new Supplier(interpolation.copy());
+  }
+
+  /**
+   * Returns the heading at a time.
+   *
+   * @param time Time since the start of the trajectory (Seconds).
+   */
+  public Rotation2d get(double time) {
+    return interpolation.sample(time);
+  }
+
+  /**
+   * Returns the heading at a time without allocating.
+   *
+   * @param time Time since the start of the trajectory (Seconds).
+   * @return Heading (Radians).
+   */
+  public double getRadians(double time) {
+    return interpolation.getRadians(time);
+  }
+
+  /**
+   * Returns the rate the heading is changing at a time.
+   *
+   * @param time Time since the start of the trajectory (Seconds).
+   * @return Angular velocity (Radians per Second).
+   */
+  public double getVelocity(double time) {
+    return interpolation.getVelocity(time);
   }
 }
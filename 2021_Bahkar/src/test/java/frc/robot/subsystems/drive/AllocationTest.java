@@ -0,0 +1,127 @@
+package frc.robot.subsystems.drive;
+
+import static org.junit.Assert.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.geometry.Translation2d;
+import frc.robot.Constants;
+import frc.robot.math.AccelerationLimiter;
+import java.lang.management.ManagementFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that the math run every loop on the command and odometry paths does not allocate, by
+ * counting the bytes the test thread allocates while running it many times. The command path is
+ * followed from {@link Swerve#drive} down to {@link Module#setModuleState}, short of the motor
+ * controllers.
+ */
+public class AllocationTest {
+
+  private static final int WARMUP = 20000;
+  private static final int ITERATIONS = 100000;
+  /** Allowed allocation over all iterations, far below one object per iteration (Bytes). */
+  private static final long BUDGET = 16 * 1024;
+
+  private final Kinematics kinematics =
+      new Kinematics(
+          new Translation2d(-0.3, -0.3),
+          new Translation2d(-0.3, 0.3),
+          new Translation2d(0.3, -0.3),
+          new Translation2d(0.3, 0.3));
+  private final ModuleState[] states = {
+    new ModuleState(), new ModuleState(), new ModuleState(), new ModuleState()
+  };
+  private final ModuleState[] measured = {
+    new ModuleState(), new ModuleState(), new ModuleState(), new ModuleState()
+  };
+  private final ModuleState optimized = new ModuleState();
+  private final double[] speeds = new double[3];
+  private final double[] pose = new double[3];
+
+  /** The heading controller and acceleration limiter read the FPGA clock. */
+  @BeforeClass
+  public static void initializeHal() {
+    HAL.initialize(500, 0);
+  }
+
+  @Test
+  public void commandPathDoesNotAllocate() {
+    HeadingController heading = new HeadingController();
+    AccelerationLimiter limiter = new AccelerationLimiter(8.0, 8.0, 20.0, 50.0);
+    TractionControl traction = new TractionControl(kinematics);
+    SimpleMotorFeedforward feedforward =
+        new SimpleMotorFeedforward(
+            Constants.drive.speedmotor.kS,
+            Constants.drive.speedmotor.kV,
+            Constants.drive.speedmotor.kA);
+
+    assertAllocationFree(
+        i -> {
+          double t = i * 0.02;
+          // Swerve.periodic: slip from the measured states, with one wheel spinning.
+          for (int m = 0; m < measured.length; m++) {
+            measured[m].set(m == 0 ? 3.0 : 1.0, t * 10.0);
+          }
+          traction.update(measured, 0.5);
+
+          // Swerve.drive: hold heading, then limit acceleration, alternating with manual turns.
+          double omega = heading.calculate(t, 0.5, i % 100 < 50 ? 0.0 : 1.0);
+          limiter.calculate(2.0 * Math.cos(t), 2.0 * Math.sin(t), omega);
+
+          // Swerve.setChassisSpeeds and setModuleStates.
+          Kinematics.discretize(limiter.getX(), limiter.getY(), limiter.getOmega(), 0.02, speeds);
+          kinematics.toModuleStates(speeds[0], speeds[1], speeds[2], states);
+          traction.limit(states);
+          Kinematics.normalize(states, 4.0);
+
+          // Module.setModuleState, up to the motor controllers.
+          for (ModuleState state : states) {
+            optimized.set(
+                state.speedMetersPerSecond,
+                state.angleDegrees,
+                state.accelerationMetersPerSecondSq);
+            optimized.optimize(t * 30.0);
+            feedforward.calculate(
+                -optimized.speedMetersPerSecond, -optimized.accelerationMetersPerSecondSq);
+          }
+        });
+  }
+
+  @Test
+  public void odometryPathDoesNotAllocate() {
+    PoseHistory history = new PoseHistory(200);
+    PoseEstimator estimator = new PoseEstimator(history);
+
+    assertAllocationFree(
+        i -> {
+          double t = i * 0.005;
+          for (ModuleState state : states) state.set(1.0, t * 10.0);
+          kinematics.toChassisSpeeds(states, speeds);
+          estimator.predict(t, speeds[0] * 0.005, speeds[1] * 0.005, t);
+          estimator.getPose(pose);
+          history.getPoseAt(t - 0.1, pose);
+        });
+  }
+
+  private interface Loop {
+    void run(int iteration);
+  }
+
+  private static void assertAllocationFree(Loop loop) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+
+    // Let the JIT compile the loop first, so only steady state allocation is counted.
+    for (int i = 0; i < WARMUP; i++) loop.run(i);
+
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < ITERATIONS; i++) loop.run(WARMUP + i);
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+    assertTrue(
+        "Allocated " + allocated + " bytes over " + ITERATIONS + " loops", allocated < BUDGET);
+  }
+}
@@ -0,0 +1,74 @@
+package frc.robot.subsystems.drive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class KinematicsTest {
+
+  private static final double PERIOD = 0.02;
+
+  /**
+   * Drives straight along the field's X axis while spinning, sending robot relative speeds each
+   * period the way the drive code does, and returns how far the robot ends up off the line.
+   *
+   * @param discretize Whether to discretize the speeds before sending them.
+   * @return Distance from the line after two seconds (Meters).
+   */
+  private static double lateralDrift(boolean discretize) {
+    double speed = 2.0;
+    double omega = 4.0;
+    double[] speeds = new double[3];
+
+    double x = 0.0;
+    double y = 0.0;
+    double heading = 0.0;
+    for (int i = 0; i < 100; i++) {
+      // Field relative command, turned into the robot's frame.
+      double vx = speed * Math.cos(heading);
+      double vy = -speed * Math.sin(heading);
+      if (discretize) {
+        Kinematics.discretize(vx, vy, omega, PERIOD, speeds);
+      } else {
+        speeds[0] = vx;
+        speeds[1] = vy;
+        speeds[2] = omega;
+      }
+
+      // The modules hold the speeds for the whole period, so the robot follows an arc.
+      double dTheta = speeds[2] * PERIOD;
+      double s = Math.sin(dTheta) / dTheta;
+      double c = (1.0 - Math.cos(dTheta)) / dTheta;
+      double dx = speeds[0] * PERIOD;
+      double dy = speeds[1] * PERIOD;
+      double arcX = dx * s - dy * c;
+      double arcY = dx * c + dy * s;
+      x += arcX * Math.cos(heading) - arcY * Math.sin(heading);
+      y += arcX * Math.sin(heading) + arcY * Math.cos(heading);
+      heading += dTheta;
+    }
+
+    assertEquals(4.0, x, 0.05);
+    return Math.abs(y);
+  }
+
+  @Test
+  public void discretizingReducesDriftWhileSpinning() {
+    double without = lateralDrift(false);
+    double with = lateralDrift(true);
+
+    assertTrue("Drift without discretizing was only " + without, without > 0.05);
+    assertTrue("Drift went from " + without + " to " + with, with < 0.01 * without);
+  }
+
+  @Test
+  public void discretizeLeavesStraightLinesAlone() {
+    double[] speeds = new double[3];
+    Kinematics.discretize(1.5, -0.5, 0.0, PERIOD, speeds);
+
+    assertEquals(1.5, speeds[0], 1e-9);
+    assertEquals(-0.5, speeds[1], 1e-9);
+    assertEquals(0.0, speeds[2], 1e-9);
+  }
+}
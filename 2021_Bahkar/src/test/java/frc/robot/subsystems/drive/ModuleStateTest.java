@@ -0,0 +1,85 @@
+package frc.robot.subsystems.drive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ModuleStateTest {
+
+  private static final double EPSILON = 1e-9;
+
+  private static ModuleState optimize(double speed, double angle, double current) {
+    ModuleState state = new ModuleState();
+    state.set(speed, angle, 1.0);
+    state.optimize(current);
+    return state;
+  }
+
+  /** Asserts two angles point the same way (Degrees). */
+  private static void assertAngle(double expected, double actual) {
+    assertEquals(0.0, Math.IEEEremainder(expected - actual, 360.0), EPSILON);
+  }
+
+  @Test
+  public void crossesZeroTheShortWay() {
+    ModuleState state = optimize(2.0, 1.0, 359.0);
+
+    assertAngle(1.0, state.angleDegrees);
+    assertEquals(2.0 * Math.cos(Math.toRadians(2.0)), state.speedMetersPerSecond, EPSILON);
+  }
+
+  @Test
+  public void crossesZeroTheShortWayBackwards() {
+    ModuleState state = optimize(2.0, 359.0, 1.0);
+
+    assertAngle(-1.0, state.angleDegrees);
+    assertEquals(2.0 * Math.cos(Math.toRadians(2.0)), state.speedMetersPerSecond, EPSILON);
+  }
+
+  @Test
+  public void plusAndMinus180AreTheSameAngle() {
+    ModuleState state = optimize(2.0, 180.0, -180.0);
+
+    assertAngle(180.0, state.angleDegrees);
+    assertEquals(2.0, state.speedMetersPerSecond, EPSILON);
+  }
+
+  @Test
+  public void oppositeDirectionFlipsSpeedInsteadOfTurning() {
+    ModuleState state = optimize(2.0, 0.0, 180.0);
+
+    assertAngle(180.0, state.angleDegrees);
+    assertEquals(-2.0, state.speedMetersPerSecond, EPSILON);
+    assertEquals(-1.0, state.accelerationMetersPerSecondSq, EPSILON);
+  }
+
+  @Test
+  public void moreThanAQuarterTurnFlipsSpeed() {
+    ModuleState state = optimize(2.0, 100.0, 0.0);
+
+    assertAngle(-80.0, state.angleDegrees);
+    assertEquals(-2.0 * Math.cos(Math.toRadians(80.0)), state.speedMetersPerSecond, EPSILON);
+  }
+
+  @Test
+  public void lessThanAQuarterTurnKeepsSpeed() {
+    ModuleState state = optimize(2.0, 80.0, 0.0);
+
+    assertAngle(80.0, state.angleDegrees);
+    assertEquals(2.0 * Math.cos(Math.toRadians(80.0)), state.speedMetersPerSecond, EPSILON);
+  }
+
+  @Test
+  public void neverTurnsMoreThanAQuarterTurn() {
+    for (double current = -720.0; current <= 720.0; current += 7.5) {
+      for (double target = -180.0; target < 180.0; target += 5.0) {
+        ModuleState state = optimize(1.0, target, current);
+        double turn = Math.IEEEremainder(state.angleDegrees - current, 360.0);
+
+        assertTrue(Math.abs(turn) <= 90.0 + EPSILON);
+        assertTrue(Math.abs(state.angleDegrees) <= 180.0 + EPSILON);
+      }
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package frc.robot.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.trajectory.TrajectoryGenerator;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Checks that {@link TrajectorySampler} gives the same samples as {@link Trajectory#sample}, and
+ * that it does so without allocating.
+ */
+public class TrajectorySamplerTest {
+
+  private static final double EPSILON = 1e-9;
+  private static final double STEP = 0.005;
+  private static final int WARMUP = 20000;
+  private static final int ITERATIONS = 100000;
+  /** Allowed allocation over all iterations, far below one object per iteration (Bytes). */
+  private static final long BUDGET = 16 * 1024;
+
+  /** Last state from {@link Trajectory#sample}, kept so the JIT cannot drop the allocation. */
+  private Trajectory.State last;
+
+  private static void assertSameAt(Trajectory trajectory, TrajectorySampler sampler, double t) {
+    Trajectory.State expected = trajectory.sample(t);
+    sampler.sample(t);
+
+    String at = "at " + t + " s: ";
+    assertEquals(at + "time", expected.timeSeconds, sampler.getTime(), EPSILON);
+    assertEquals(at + "velocity", expected.velocityMetersPerSecond, sampler.getVelocity(), EPSILON);
+    assertEquals(
+        at + "acceleration",
+        expected.accelerationMetersPerSecondSq,
+        sampler.getAcceleration(),
+        EPSILON);
+    assertEquals(at + "x", expected.poseMeters.getX(), sampler.getX(), EPSILON);
+    assertEquals(at + "y", expected.poseMeters.getY(), sampler.getY(), EPSILON);
+    assertEquals(
+        at + "heading",
+        0.0,
+        Math.IEEEremainder(
+            expected.poseMeters.getRotation().getRadians() - sampler.getHeading(), 2.0 * Math.PI),
+        EPSILON);
+    assertEquals(
+        at + "curvature", expected.curvatureRadPerMeter, sampler.getCurvature(), EPSILON);
+  }
+
+  /** Samples forward through the whole trajectory and a little past either end. */
+  private static void assertSameForward(Trajectory trajectory) {
+    TrajectorySampler sampler = new TrajectorySampler(trajectory);
+    for (double t = -0.1; t <= trajectory.getTotalTimeSeconds() + 0.1; t += STEP) {
+      assertSameAt(trajectory, sampler, t);
+    }
+  }
+
+  @Test
+  public void matchesAutonomousPath() {
+    assertSameForward(Trajectories.WheelTenBall.TURN_IN.generate());
+  }
+
+  @Test
+  public void matchesReversedPath() {
+    Trajectory trajectory =
+        TrajectoryGenerator.generateTrajectory(
+            List.of(
+                new Pose2d(3.0, 1.0, Rotation2d.fromDegrees(0.0)),
+                new Pose2d(1.5, 2.0, Rotation2d.fromDegrees(-30.0)),
+                new Pose2d(0.0, 2.5, Rotation2d.fromDegrees(0.0))),
+            new TrajectoryConfig(2.0, 1.5).setReversed(true));
+
+    assertSameForward(trajectory);
+  }
+
+  @Test
+  public void matchesWhenSamplingBackwards() {
+    Trajectory trajectory = Trajectories.WheelTenBall.TURN_IN.generate();
+    TrajectorySampler sampler = new TrajectorySampler(trajectory);
+
+    for (double t = trajectory.getTotalTimeSeconds(); t >= 0.0; t -= 7.0 * STEP) {
+      assertSameAt(trajectory, sampler, t);
+    }
+
+    sampler.reset();
+    assertSameAt(trajectory, sampler, 0.5 * trajectory.getTotalTimeSeconds());
+  }
+
+  @Test
+  public void samplesWithoutAllocating() {
+    Trajectory trajectory = Trajectories.WheelTenBall.TURN_IN.generate();
+    TrajectorySampler sampler = new TrajectorySampler(trajectory);
+    double period = trajectory.getTotalTimeSeconds();
+
+    long sampled = allocatedBytes(i -> last = trajectory.sample((i * STEP) % period));
+    long sampledInPlace = allocatedBytes(i -> sampler.sample((i * STEP) % period));
+
+    String report =
+        "Trajectory.sample allocated "
+            + sampled
+            + " bytes and TrajectorySampler.sample "
+            + sampledInPlace
+            + " bytes over "
+            + ITERATIONS
+            + " samples";
+    assertTrue(report, sampledInPlace < BUDGET);
+    assertTrue(report, sampled > BUDGET);
+  }
+
+  private interface Loop {
+    void run(int iteration);
+  }
+
+  /** Returns the bytes the test thread allocates running a loop, after warming it up. */
+  private static long allocatedBytes(Loop loop) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+
+    // Let the JIT compile the loop first, so only steady state allocation is counted.
+    for (int i = 0; i < WARMUP; i++) loop.run(i);
+
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < ITERATIONS; i++) loop.run(WARMUP + i);
+    return threads.getThreadAllocatedBytes(thread) - before;
+  }
+}